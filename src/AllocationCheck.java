@@ -0,0 +1,161 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Checks that the steady-state work done every cycle creates no objects. A
+ * session with every kind of input filter is steered through a large layout
+ * of coins without a window. The bot's levels are written to an InputRing in
+ * a temporary file, as the classifier process does. The cycles are paced by
+ * the same TickLoop as the testing session, each one polls the ring and runs
+ * CoinGame.tick(), and
+ * every few cycles the frame is drawn into an image through
+ * SceneRenderer.drawView(), the same call the window makes, at a system scale
+ * of 125%. After a warm-up the bytes allocated by the thread are measured over
+ * a number of cycles, and the check fails with exit status 1 if they exceed
+ * ALLOWANCE.
+ * <p>
+ * The session runs 250 times faster than real time, so the cube moves about
+ * as far in a cycle as it does in a 5 ms session cycle and collects coins
+ * while it is measured. The number of coins collected is printed, and the
+ * check fails if none were, or if no input was read from the ring.
+ * <p>
+ * The optional argument is the number of measured cycles (default 100000).
+ */
+public class AllocationCheck {
+	private static final int WARM_UP = 200000;
+	// cycle length while measuring, in nanoseconds
+	private static final long PERIOD = 20000;
+	private static final int SPEED_UP = 250;
+	private static final int FRAME_TICKS = 4;
+	private static final double SYSTEM_SCALE = 1.25;
+	private static final int COINS = 20000;
+	// Bytes the measured cycles may allocate in total. Reading the thread's
+	// allocation counter allocates about a kilobyte itself, and nothing
+	// else is expected; a cycle that allocates even 1 byte would exceed it
+	// over the default number of cycles.
+	private static final long ALLOWANCE = 2048;
+
+	/**
+	 * @param args
+	 *            optional number of measured cycles
+	 */
+	public static void main(String[] args) {
+		int cycles = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		if (StressTest.getAllocatedBytes() < 0) {
+			System.err.println("This JVM cannot measure allocation");
+			System.exit(1);
+		}
+
+		SignalConditioner conditioner = new SignalConditioner(
+				new LevelFilter[] { new LevelFilter.MovingAverage(4),
+						new LevelFilter.Exponential(.5),
+						new LevelFilter.Hysteresis(1),
+						new LevelFilter.Debounce(2),
+						new LevelFilter.DeadZone(1) });
+		SyntheticSession session = new SyntheticSession(conditioner, COINS, 1);
+		CoinGame game = session.getGame();
+		InputRing reader = null;
+		try {
+			File file = File.createTempFile("allocation", ".ring");
+			file.deleteOnExit();
+			session.sendTo(InputRing.create(file.getPath(), 1024));
+			reader = InputRing.open(file.getPath());
+		} catch (IOException e) {
+			System.err.println("Could not create the input ring: "
+					+ e.getMessage());
+			System.exit(1);
+		}
+		SceneRenderer renderer = new SceneRenderer(game.getCube());
+		renderer.setGame(game);
+		// a window of the default size on a display scaled to 125%
+		int width = (int) (CoinGame.PANEL_X * SYSTEM_SCALE);
+		int height = (int) (CoinGame.PANEL_Y * SYSTEM_SCALE);
+		BufferedImage frame = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = frame.createGraphics();
+		g.scale(SYSTEM_SCALE, SYSTEM_SCALE);
+
+		long start = System.nanoTime();
+		game.start(start);
+		TickLoop loop = new TickLoop(0);
+		for (int i = 0; i < WARM_UP; i++) {
+			cycle(session, reader, renderer, g, loop, start, i);
+		}
+		int collected = game.getCoins();
+		long received = 0;
+		loop = new TickLoop(PERIOD);
+		long before = StressTest.getAllocatedBytes();
+		for (int i = 0; i < cycles; i++) {
+			received += cycle(session, reader, renderer, g, loop, start,
+					WARM_UP + i);
+		}
+		long allocated = StressTest.getAllocatedBytes() - before;
+		collected = game.getCoins() - collected;
+
+		System.out.println("Cycles: " + cycles);
+		System.out.println("Coins collected: " + collected);
+		System.out.println("Input records read: " + received);
+		System.out.println("Allocated bytes: " + allocated + " (allowance "
+				+ ALLOWANCE + ")");
+		System.out.println("Bytes per cycle: "
+				+ ((double) allocated / cycles));
+		if (game.getCoins() >= COINS) {
+			System.out.println("FAILED: the session ran out of coins");
+			System.exit(1);
+		}
+		if (collected == 0) {
+			System.out.println("FAILED: no coin was collected");
+			System.exit(1);
+		}
+		if (received == 0) {
+			System.out.println("FAILED: no input was read from the ring");
+			System.exit(1);
+		}
+		if (allocated > ALLOWANCE) {
+			System.out.println("FAILED: the cycle allocates");
+			System.exit(1);
+		}
+		System.out.println("PASSED");
+	}
+
+	/**
+	 * Runs one cycle: waits for its start, takes input, runs the game logic
+	 * and draws the frame if one is due.
+	 * 
+	 * @param session
+	 *            the session and its bot
+	 * @param reader
+	 *            the ring the bot's levels are read from
+	 * @param renderer
+	 *            draws the session
+	 * @param g
+	 *            Graphics component of the frame, scaled by the system
+	 * @param loop
+	 *            paces the cycles
+	 * @param start
+	 *            the time the session started
+	 * @param i
+	 *            number of the cycle
+	 * @return the number of input records read
+	 */
+	private static int cycle(SyntheticSession session, InputRing reader,
+			SceneRenderer renderer, Graphics2D g, TickLoop loop, long start,
+			int i) {
+		long now = loop.await();
+		session.steer(i);
+		CoinGame game = session.getGame();
+		int received = reader.poll(game.getConditioner());
+		game.tick(start + (now - start) * SPEED_UP);
+		if (i % FRAME_TICKS == 0) {
+			// clear the panel as JPanel.paintComponent() does
+			g.setColor(Color.black);
+			g.fillRect(0, 0, CoinGame.PANEL_X, CoinGame.PANEL_Y);
+			renderer.drawView(g, CoinGame.PANEL_X, CoinGame.PANEL_Y,
+					SYSTEM_SCALE);
+		}
+		return received;
+	}
+}
@@ -0,0 +1,106 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings given on the command line as name=value pairs, as the headless
+ * tools take them. Each setting is read once with a default for when it is
+ * not given, then check() rejects any setting that was not read.
+ */
+public class Arguments {
+	private final Map<String, String> values;
+
+	/**
+	 * Constructor for the Arguments.
+	 * 
+	 * @param args
+	 *            name=value settings
+	 * @throws IllegalArgumentException
+	 *             if an argument is not a name=value pair
+	 */
+	public Arguments(String[] args) {
+		values = new LinkedHashMap<String, String>();
+		for (String arg : args) {
+			int split = arg.indexOf('=');
+			if (split < 0) {
+				throw new IllegalArgumentException("expected name=value, got "
+						+ arg);
+			}
+			values.put(arg.substring(0, split), arg.substring(split + 1));
+		}
+	}
+
+	/**
+	 * Reads a setting as text.
+	 * 
+	 * @param name
+	 *            name of the setting
+	 * @param fallback
+	 *            value if the setting is not given
+	 * @return the value
+	 */
+	public String getString(String name, String fallback) {
+		String value = values.remove(name);
+		return value == null ? fallback : value;
+	}
+
+	/**
+	 * Reads a setting as an int.
+	 * 
+	 * @param name
+	 *            name of the setting
+	 * @param fallback
+	 *            value if the setting is not given
+	 * @return the value
+	 * @throws NumberFormatException
+	 *             if the value is not an int
+	 */
+	public int getInt(String name, int fallback) {
+		String value = values.remove(name);
+		return value == null ? fallback : Integer.parseInt(value);
+	}
+
+	/**
+	 * Reads a setting as a long.
+	 * 
+	 * @param name
+	 *            name of the setting
+	 * @param fallback
+	 *            value if the setting is not given
+	 * @return the value
+	 * @throws NumberFormatException
+	 *             if the value is not a long
+	 */
+	public long getLong(String name, long fallback) {
+		String value = values.remove(name);
+		return value == null ? fallback : Long.parseLong(value);
+	}
+
+	/**
+	 * Reads a setting as a double.
+	 * 
+	 * @param name
+	 *            name of the setting
+	 * @param fallback
+	 *            value if the setting is not given
+	 * @return the value
+	 * @throws NumberFormatException
+	 *             if the value is not a number
+	 */
+	public double getDouble(String name, double fallback) {
+		String value = values.remove(name);
+		return value == null ? fallback : Double.parseDouble(value);
+	}
+
+	/**
+	 * Checks that every setting given has been read.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             naming the first setting that was not read
+	 */
+	public void check() {
+		if (!values.isEmpty()) {
+			throw new IllegalArgumentException("unknown setting "
+					+ values.keySet().iterator().next());
+		}
+	}
+}
@@ -0,0 +1,293 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.PrintWriter;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures what the machine can keep up with before a session starts, and
+ * chooses the cycle length and how often the window is redrawn. The trial
+ * cycles do the work of the session about to run: a SyntheticSession is
+ * steered through the session's own filters, the input ring is polled if
+ * there is one, and frames are drawn the way the window draws them, with the
+ * recording copy as well if the session is recorded. The timer resolution,
+ * the cost of a cycle and the cost of drawing a frame at the size of the
+ * window are measured, then each cycle length is tried in turn, from the
+ * shortest, until one is found whose cycles start on time. Frames are drawn
+ * every few cycles, as often as the display refreshes if drawing is cheap
+ * enough. Takes up to two seconds.
+ */
+public class Calibration {
+	// cycle lengths tried, in milliseconds. Each divides a second so counts
+	// of cycles per second stay exact.
+	private static final int[] TICK_PERIODS = { 1, 2, 4, 5, 8, 10, 20 };
+	// time each cycle length is tried for, in nanoseconds
+	private static final long TRIAL = 250000000;
+	// fraction of a cycle a cycle may take, and the most a cycle may start
+	// late, for a cycle length to be used
+	private static final double TICK_BUDGET = .1;
+	private static final double LATE_BUDGET = .25;
+	// fraction of the time between frames drawing may take
+	private static final double FRAME_BUDGET = .25;
+	// used when the display does not report its refresh rate
+	private static final int DEFAULT_REFRESH = 60;
+	// coins in the layout of the trial sessions, more than they can collect
+	private static final int COINS = 2000;
+
+	private long timerResolution;
+	private long parkOvershoot;
+	private long tickCost;
+	private long paintCost;
+	private long late;
+	private int refreshRate;
+	private int tickPeriod;
+	private int frameTicks;
+
+	/**
+	 * Runs a calibration without a window, with the filters in filters.cfg,
+	 * and prints the result.
+	 * 
+	 * @param args
+	 *            optional width and height of the window in pixels (default
+	 *            640 640) and refresh rate of the display (default 60)
+	 */
+	public static void main(String[] args) {
+		int width = args.length > 1 ? Integer.parseInt(args[0])
+				: CoinGame.PANEL_X;
+		int height = args.length > 1 ? Integer.parseInt(args[1])
+				: CoinGame.PANEL_Y;
+		int refresh = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+		Calibration calibration = measure(
+				SignalConditioner.load("filters.cfg"), null, false, width,
+				height, 1, refresh);
+		PrintWriter out = new PrintWriter(System.out);
+		calibration.print(out);
+		out.flush();
+	}
+
+	/**
+	 * Measures the machine and chooses the cycle length and frame rate.
+	 * 
+	 * @param conditioner
+	 *            the filters of the session, used by the trial cycles and
+	 *            changed by them
+	 * @param input
+	 *            the ring the session reads, polled by the trial cycles, or
+	 *            null if there is none
+	 * @param capture
+	 *            true if the session is recorded, so every frame is drawn a
+	 *            second time for the recording
+	 * @param width
+	 *            width of the window in device pixels
+	 * @param height
+	 *            height of the window in device pixels
+	 * @param systemScale
+	 *            device pixels per pixel of the window
+	 * @param refreshRate
+	 *            refresh rate of the display in Hz, 0 if not known
+	 * @return the measurements and choices
+	 */
+	public static Calibration measure(SignalConditioner conditioner,
+			InputRing input, boolean capture, int width, int height,
+			double systemScale, int refreshRate) {
+		Calibration calibration = new Calibration();
+		calibration.refreshRate = refreshRate > 0 ? refreshRate
+				: DEFAULT_REFRESH;
+		calibration.measureTimer();
+		calibration.measureTick(conditioner, input);
+		calibration.measurePaint(conditioner, capture, width, height,
+				systemScale);
+		calibration.chooseTickPeriod(conditioner, input);
+		calibration.chooseFrameRate();
+		return calibration;
+	}
+
+	/**
+	 * Measures the smallest step of System.nanoTime() and how late
+	 * LockSupport.parkNanos() wakes up.
+	 */
+	private void measureTimer() {
+		long smallest = Long.MAX_VALUE;
+		for (int i = 0; i < 1000; i++) {
+			long start = System.nanoTime(), now;
+			while ((now = System.nanoTime()) == start) {
+				// wait for the clock to change
+			}
+			smallest = Math.min(smallest, now - start);
+		}
+		timerResolution = smallest;
+		LatencyHistogram overshoot = new LatencyHistogram();
+		for (int i = 0; i < 100; i++) {
+			long start = System.nanoTime();
+			LockSupport.parkNanos(100000);
+			overshoot.record(System.nanoTime() - start - 100000);
+		}
+		parkOvershoot = overshoot.getPercentile(.5);
+	}
+
+	/**
+	 * Measures the cost of a cycle with changing input, after a warm-up. The
+	 * session runs in simulated time, one base tick per cycle, so it
+	 * collects coins the way a real session does.
+	 */
+	private void measureTick(SignalConditioner conditioner, InputRing input) {
+		SyntheticSession session = new SyntheticSession(conditioner, COINS, 1);
+		long time = 0;
+		session.getGame().start(time);
+		LatencyHistogram cost = new LatencyHistogram();
+		for (int i = 0; i < 40000; i++) {
+			long start = System.nanoTime();
+			time += CoinGame.BASE_TICK;
+			cycle(session, input, i, time);
+			if (i >= 20000) {
+				cost.record(System.nanoTime() - start);
+			}
+		}
+		tickCost = cost.getPercentile(.99);
+	}
+
+	/**
+	 * Measures the cost of clearing and drawing a frame at the size of the
+	 * window, after a warm-up. The frame is drawn through the same call as
+	 * the window, and drawn again at the logical size if the session is
+	 * recorded.
+	 */
+	private void measurePaint(SignalConditioner conditioner, boolean capture,
+			int width, int height, double systemScale) {
+		SyntheticSession session = new SyntheticSession(conditioner, COINS, 2);
+		CoinGame game = session.getGame();
+		SceneRenderer renderer = new SceneRenderer(game.getCube());
+		renderer.setGame(game);
+		SceneRenderer captureRenderer = new SceneRenderer(game.getCube());
+		captureRenderer.setGame(game);
+		BufferedImage frame = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = frame.createGraphics();
+		g.scale(systemScale, systemScale);
+		int viewWidth = (int) (width / systemScale);
+		int viewHeight = (int) (height / systemScale);
+		BufferedImage copy = new BufferedImage(CoinGame.PANEL_X,
+				CoinGame.PANEL_Y, BufferedImage.TYPE_INT_RGB);
+		Graphics2D copyGraphics = copy.createGraphics();
+		long time = 0;
+		game.start(time);
+		LatencyHistogram cost = new LatencyHistogram();
+		for (int i = 0; i < 400; i++) {
+			// move the cube between frames, as the cycles do
+			for (int j = 0; j < 4; j++) {
+				time += CoinGame.BASE_TICK;
+				cycle(session, null, i * 4 + j, time);
+			}
+			long start = System.nanoTime();
+			g.setColor(Color.black);
+			g.fillRect(0, 0, viewWidth, viewHeight);
+			renderer.drawView(g, viewWidth, viewHeight, systemScale);
+			if (capture) {
+				copyGraphics.setColor(Color.black);
+				copyGraphics.fillRect(0, 0, CoinGame.PANEL_X,
+						CoinGame.PANEL_Y);
+				captureRenderer.draw(copyGraphics);
+			}
+			if (i >= 200) {
+				cost.record(System.nanoTime() - start);
+			}
+		}
+		g.dispose();
+		copyGraphics.dispose();
+		paintCost = cost.getPercentile(.99);
+	}
+
+	/**
+	 * Tries each cycle length, shortest first, and keeps the first one that
+	 * the cycles fit in and start on time. Falls back to the longest.
+	 */
+	private void chooseTickPeriod(SignalConditioner conditioner,
+			InputRing input) {
+		SyntheticSession session = new SyntheticSession(conditioner, COINS, 3);
+		session.getGame().start(System.nanoTime());
+		int last = TICK_PERIODS.length - 1;
+		for (int i = 0; i <= last; i++) {
+			tickPeriod = TICK_PERIODS[i];
+			long period = tickPeriod * 1000000L;
+			if (tickCost > period * TICK_BUDGET && i < last) {
+				continue;
+			}
+			// run the cycles paced the same way as the session
+			LatencyHistogram lateness = new LatencyHistogram();
+			TickLoop loop = new TickLoop(period);
+			long end = System.nanoTime() + TRIAL;
+			for (int cycle = 0;; cycle++) {
+				long now = loop.await();
+				if (now - end >= 0) {
+					break;
+				}
+				lateness.record(loop.getLate());
+				cycle(session, input, cycle, now);
+			}
+			late = lateness.getPercentile(.99);
+			if (late <= period * LATE_BUDGET || i == last) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Draws a frame every so many cycles, as often as the display refreshes
+	 * while keeping drawing within its share of the time between frames.
+	 */
+	private void chooseFrameRate() {
+		long period = tickPeriod * 1000000L;
+		long frame = Math.max(1000000000L / refreshRate,
+				(long) (paintCost / FRAME_BUDGET));
+		frameTicks = (int) Math.max(1, (frame + period - 1) / period);
+	}
+
+	/**
+	 * Runs one cycle of a trial session: the bot steers, the input ring is
+	 * polled and the session moves on to the given time.
+	 */
+	private static void cycle(SyntheticSession session, InputRing input,
+			int i, long time) {
+		session.steer(i);
+		if (input != null) {
+			input.poll(session.getGame().getConditioner());
+		}
+		session.getGame().tick(time);
+	}
+
+	/**
+	 * Returns the chosen cycle length.
+	 * 
+	 * @return cycle length in milliseconds
+	 */
+	public int getTickPeriod() {
+		return tickPeriod;
+	}
+
+	/**
+	 * Returns the number of cycles between frames.
+	 * 
+	 * @return cycles per frame
+	 */
+	public int getFrameTicks() {
+		return frameTicks;
+	}
+
+	/**
+	 * Prints the measurements and the chosen rates, so sessions run on
+	 * different machines can be compared.
+	 * 
+	 * @param out
+	 *            where to print
+	 */
+	public void print(PrintWriter out) {
+		out.println("TimerResolution(us) ParkOvershoot(us) TickCost(us) "
+				+ "PaintCost(us) Late(us) Refresh(Hz) TickPeriod(ms) "
+				+ "TickRate(Hz) FrameRate(Hz)");
+		out.println((timerResolution / 1000.) + " " + (parkOvershoot / 1000.)
+				+ " " + (tickCost / 1000.) + " " + (paintCost / 1000.) + " "
+				+ (late / 1000.) + " " + refreshRate + " " + tickPeriod + " "
+				+ (1000 / tickPeriod) + " "
+				+ (1000. / (tickPeriod * frameTicks)));
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * Checks that stopping every direction, as the space and ESC keys do, keeps
+ * the levels given right after it. The levels set before the stop must be
+ * gone and those set after it, before the next cycle, must reach the
+ * direction array, with and without filters. Exits with status 1 if any case
+ * fails.
+ */
+public class ClearCheck {
+	/**
+	 * @param args
+	 *            not used
+	 */
+	public static void main(String[] args) {
+		boolean passed = true;
+		passed &= check("no filters", new LevelFilter[0]);
+		passed &= check("all filters", new LevelFilter[] {
+				new LevelFilter.MovingAverage(4),
+				new LevelFilter.Exponential(.5),
+				new LevelFilter.Hysteresis(1), new LevelFilter.Debounce(2),
+				new LevelFilter.DeadZone(1) });
+		if (!passed) {
+			System.out.println("FAILED: levels given after a stop are lost");
+			System.exit(1);
+		}
+		System.out.println("PASSED");
+	}
+
+	/**
+	 * Stops the input after it has settled, gives a new level before the next
+	 * cycle, and checks the direction array once the filters settle again.
+	 * 
+	 * @param name
+	 *            name of the case
+	 * @param stages
+	 *            the filters
+	 * @return true if the case passed
+	 */
+	private static boolean check(String name, LevelFilter[] stages) {
+		SignalConditioner conditioner = new SignalConditioner(stages);
+		int[] direction = new int[4];
+		conditioner.set(1, 5);
+		conditioner.set(2, 7);
+		settle(conditioner, direction);
+		conditioner.clearAll();
+		conditioner.set(1, 9);
+		settle(conditioner, direction);
+		boolean passed = direction[0] == 0 && direction[1] == 9
+				&& direction[2] == 0 && direction[3] == 0;
+		System.out.println(name + ": " + direction[0] + " " + direction[1]
+				+ " " + direction[2] + " " + direction[3]
+				+ (passed ? "" : " (expected 0 9 0 0)"));
+		return passed;
+	}
+
+	/**
+	 * Runs enough cycles for every filter to settle.
+	 */
+	private static void settle(SignalConditioner conditioner, int[] direction) {
+		for (int i = 0; i < 100; i++) {
+			conditioner.process(direction);
+		}
+	}
+}
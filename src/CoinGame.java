@@ -0,0 +1,369 @@
+import java.io.PrintWriter;
+
+/**
+ * The state and cycle logic of one testing session: the cube, the coins it
+ * has to collect and the statistics of the run. Does not depend on the window,
+ * so sessions can also be run without a display. The caller supplies the time
+ * of every cycle.
+ */
+public class CoinGame {
+	/**
+	 * The cycle length, in nanoseconds, that the direction levels are
+	 * defined against. The input filters also run once per BASE_TICK of
+	 * session time, whatever the cycle length.
+	 */
+	public static final long BASE_TICK = 5000000;
+	// most filter runs made up for in one cycle, after a long stall
+	private static final long CATCH_UP = 200 * BASE_TICK;
+	/** Width of the play area */
+	public static final int PANEL_X = 640;
+	/** Height of the play area */
+	public static final int PANEL_Y = 640;
+	/** Side length of a coin */
+	public static final int COIN_SIZE = 25;
+	private final Cube cube;
+	private final int[][] coinLocations;
+	private final long duration;
+	private final SignalConditioner conditioner;
+	private final PathTracker tracker;
+	private long startTime;
+	private long lastTime;
+	private long endTime;
+	// session time of the next run of the input filters
+	private long nextCondition;
+	// read when the window is drawn
+	private volatile int coins = 0;
+	// set by the input, the cube is reset on the next cycle
+	private volatile boolean resetRequested = false;
+
+	/**
+	 * Constructor for the CoinGame. The cube is placed in the center of the
+	 * play area.
+	 * 
+	 * @param cube
+	 *            the cube moved by the session
+	 * @param coinLocations
+	 *            x-y pairs of the coins, in the order they are shown
+	 * @param conditioner
+	 *            the filters the input levels pass through
+	 * @param duration
+	 *            the max duration of the session in seconds
+	 */
+	public CoinGame(Cube cube, int[][] coinLocations,
+			SignalConditioner conditioner, int duration) {
+		this.cube = cube;
+		this.coinLocations = coinLocations;
+		this.conditioner = conditioner;
+		this.duration = (long) duration * (long) 1000000000;
+		tracker = new PathTracker(coinLocations.length, COIN_SIZE);
+		resetCube();
+	}
+
+	/**
+	 * Starts the session, the first coin appears at the given time.
+	 * 
+	 * @param time
+	 *            the start time (System.nanoTime() or simulated)
+	 */
+	public void start(long time) {
+		startTime = time;
+		lastTime = time;
+		endTime = time;
+		nextCondition = time;
+		spawnCoin(time);
+	}
+
+	/**
+	 * The logic that executes every cycle of the session. The cube moves for
+	 * the time since the last cycle at the speed set by its direction levels,
+	 * so cycles do not have to be evenly spaced and may be far longer than
+	 * BASE_TICK. A coin passed during the cycle is collected at the exact time
+	 * the cube reached it.
+	 * 
+	 * @param time
+	 *            the time of the cycle (System.nanoTime() or simulated)
+	 * @return True if the session has ended, either because every coin was
+	 *         collected or the max duration was exceeded
+	 */
+	public boolean tick(long time) {
+		long stepStart = lastTime;
+		long step = time - stepStart;
+		lastTime = time;
+		if (resetRequested) {
+			resetRequested = false;
+			resetCube();
+		}
+		// Filter the input levels into the direction array. The filters count
+		// in base ticks, so they run at that fixed rate rather than once per
+		// cycle, and add the same latency whatever cycle length the machine
+		// was given.
+		int[] direction = cube.getDirection();
+		if (time - nextCondition > CATCH_UP) {
+			nextCondition = time - CATCH_UP;
+		}
+		while (time - nextCondition >= 0) {
+			conditioner.process(direction);
+			nextCondition += BASE_TICK;
+		}
+
+		// Encapsulate the cube inside the window, preventing it from leaving
+		// the screen
+		double maxX = PANEL_X - cube.getTotalLength();
+		double maxY = PANEL_Y - cube.getTotalLength();
+		if (cube.getPreciseX() >= maxX) {
+			stopDirection(direction, 1);
+		}
+		if (cube.getPreciseX() <= 0) {
+			stopDirection(direction, 3);
+		}
+		if (cube.getPreciseY() >= maxY) {
+			stopDirection(direction, 2);
+		}
+		if (cube.getPreciseY() <= 0) {
+			stopDirection(direction, 0);
+		}
+
+		// speed on each axis, proportional to the value of direction
+		double vx = speed(direction[1]) - speed(direction[3]);
+		double vy = speed(direction[2]) - speed(direction[0]);
+		// The move is split where an axis reaches the edge of the window, and
+		// that axis stops there for the rest of the cycle. Each part is swept
+		// over its own stretch of time, so a coin reached after an axis has
+		// stopped is collected at the time the cube really got there.
+		double from = 0;
+		while (from < step) {
+			double x = cube.getPreciseX(), y = cube.getPreciseY();
+			double wallX = from + timeToEdge(x, vx, maxX);
+			double wallY = from + timeToEdge(y, vy, maxY);
+			double to = Math.min(step, Math.min(wallX, wallY));
+			double dx = vx * (to - from);
+			double dy = vy * (to - from);
+			// land exactly on the edge
+			if (wallX <= to) {
+				dx = (vx > 0 ? maxX : 0) - x;
+			}
+			if (wallY <= to) {
+				dy = (vy > 0 ? maxY : 0) - y;
+			}
+
+			// Execute if the cube hits the "coin" at any point of the move. A
+			// long move may pass through more than one coin.
+			double done = 0;
+			double hit;
+			while ((hit = cube.sweepCollision(dx * (1 - done),
+					dy * (1 - done), coinLocations[coins][0],
+					coinLocations[coins][1], COIN_SIZE)) >= 0) {
+				// move to the point of impact
+				done += hit * (1 - done);
+				cube.setX(x + dx * done);
+				cube.setY(y + dy * done);
+				long hitTime = stepStart + (long) (from + (to - from) * done);
+				// store the path statistics of the coin
+				tracker.update(hitTime, cube.getPreciseX(),
+						cube.getPreciseY(), direction);
+				tracker.collect(hitTime);
+				// increase the number of coins found, automatically displays
+				// and calculates for the next coin in the list.
+				coins++;
+				// Checks to see if there are no more coins, if so:
+				if (coins >= coinLocations.length) {
+					// stop the test
+					endTime = hitTime;
+					return true;
+				}
+				// start tracking the path to the next coin
+				spawnCoin(hitTime);
+			}
+			// finish this part of the move
+			cube.setX(x + dx);
+			cube.setY(y + dy);
+			if (wallX <= to) {
+				vx = 0;
+			}
+			if (wallY <= to) {
+				vy = 0;
+			}
+			from = to;
+		}
+		// update the path statistics of the current coin
+		tracker.update(time, cube.getPreciseX(), cube.getPreciseY(), direction);
+
+		// Execute if the test has exceed the desired length (usually will be
+		// larger than the target value by a factor of .01 or less)
+		if (time - startTime > duration) {
+			endTime = time;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Converts a direction level into a speed. A level of n moves the cube 2
+	 * pixels every 10-n base ticks.
+	 * 
+	 * @param level
+	 *            the direction level, 0-9
+	 * @return speed in pixels per nanosecond
+	 */
+	private static double speed(int level) {
+		if (level == 0) {
+			return 0;
+		}
+		return 2. / ((10 - level) * BASE_TICK);
+	}
+
+	/**
+	 * Returns how long the cube takes to reach the edge of the window along
+	 * one axis.
+	 * 
+	 * @param position
+	 *            location of the cube on the axis
+	 * @param speed
+	 *            speed along the axis in pixels per nanosecond
+	 * @param max
+	 *            largest location on the axis
+	 * @return time in nanoseconds, infinite if the cube is not moving
+	 */
+	private static double timeToEdge(double position, double speed,
+			double max) {
+		if (speed > 0) {
+			return Math.max(0, (max - position) / speed);
+		}
+		if (speed < 0) {
+			return Math.max(0, position / -speed);
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Reset the position of the cube to the ~center of the play area. The
+	 * move is not counted as part of the subject's path.
+	 */
+	public void resetCube() {
+		int halfCubeTotalLength = cube.getTotalLength() / 2;
+		cube.setX(PANEL_X / 2 - halfCubeTotalLength);
+		cube.setY(PANEL_Y / 2 - halfCubeTotalLength);
+		tracker.reposition(cube.getPreciseX(), cube.getPreciseY());
+	}
+
+	/**
+	 * Asks for the cube to be reset to the center at the start of the next
+	 * cycle. Safe to call from the input while cycles are running.
+	 */
+	public void requestReset() {
+		resetRequested = true;
+	}
+
+	/**
+	 * Stops motion in one direction. Clears the input level as well so the
+	 * direction stays stopped until a new level is given.
+	 * 
+	 * @param direction
+	 *            the direction array of the cube
+	 * @param axis
+	 *            the direction to stop (UP,RIGHT,DOWN,LEFT)
+	 */
+	private void stopDirection(int[] direction, int axis) {
+		direction[axis] = 0;
+		conditioner.clear(axis);
+	}
+
+	/**
+	 * Starts the path statistics for the coin that is currently displayed.
+	 * 
+	 * @param time
+	 *            the time the coin appeared
+	 */
+	private void spawnCoin(long time) {
+		tracker.spawn(time, cube.getPreciseX(), cube.getPreciseY(),
+				cube.getTotalLength(), coinLocations[coins][0],
+				coinLocations[coins][1]);
+	}
+
+	/**
+	 * Returns the cube moved by the session.
+	 * 
+	 * @return the cube
+	 */
+	public Cube getCube() {
+		return cube;
+	}
+
+	/**
+	 * Returns the filters the input levels pass through. Input should set its
+	 * levels here rather than in the cube's direction array.
+	 * 
+	 * @return the signal conditioner
+	 */
+	public SignalConditioner getConditioner() {
+		return conditioner;
+	}
+
+	/**
+	 * Returns the number of coins collected so far.
+	 * 
+	 * @return number of coins collected
+	 */
+	public int getCoins() {
+		return coins;
+	}
+
+	/**
+	 * Returns the time from the start of the session to its end. Only valid
+	 * once tick() has returned true.
+	 * 
+	 * @return elapsed time in nanoseconds
+	 */
+	public long getElapsedTime() {
+		return endTime - startTime;
+	}
+
+	/**
+	 * Returns the x location of the coin currently displayed. Once every coin
+	 * is collected the last coin is returned.
+	 * 
+	 * @return x location of the current coin
+	 */
+	public int getCoinX() {
+		return coinLocations[Math.min(coins, coinLocations.length - 1)][0];
+	}
+
+	/**
+	 * Returns the y location of the coin currently displayed. Once every coin
+	 * is collected the last coin is returned.
+	 * 
+	 * @return y location of the current coin
+	 */
+	public int getCoinY() {
+		return coinLocations[Math.min(coins, coinLocations.length - 1)][1];
+	}
+
+	/**
+	 * Returns the path statistics of the session.
+	 * 
+	 * @return the path tracker
+	 */
+	public PathTracker getTracker() {
+		return tracker;
+	}
+
+	/**
+	 * Prints the session summary followed by the path statistics of each
+	 * collected coin and the latency of the input filters.
+	 * 
+	 * @param out
+	 *            where to print the results
+	 * @param name
+	 *            the name of the test
+	 */
+	public void print(PrintWriter out, String name) {
+		// existing columns first so older scripts can still read the line
+		out.println("Name Time NumCoins MeanRatio DirChanges IdleTime");
+		out.println(name + " " + ((endTime - startTime) / 1000000000.) + " "
+				+ coins + " " + tracker.getMeanRatio() + " "
+				+ tracker.getTotalDirectionChanges() + " "
+				+ tracker.getTotalIdleTime());
+		tracker.print(out);
+		conditioner.print(out, BASE_TICK / 1000000.);
+	}
+}
@@ -0,0 +1,269 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The coin locations used by testing sessions, read from a layout file. The
+ * file can be watched for changes, in which case it is read again on a
+ * background thread and, if valid, replaces the current layout. Sessions take
+ * the current layout when they start, so a change never affects a session in
+ * progress.
+ * <p>
+ * A text layout starts with the number of coins, followed by an x-y pair for
+ * each coin. A binary layout starts with the bytes "COIN" followed by the same
+ * values as big-endian 4 byte integers.
+ */
+public class CoinLayout {
+	private static final byte[] MAGIC = { 'C', 'O', 'I', 'N' };
+	private final Path file;
+	private final int panelX;
+	private final int panelY;
+	private final int coinSize;
+	private final AtomicReference<int[][]> current = new AtomicReference<int[][]>();
+	private WatchService watcher;
+
+	/**
+	 * Constructor for the CoinLayout. Reads the layout file once, use watch()
+	 * to pick up later changes.
+	 * 
+	 * @param fileLocation
+	 *            the location of the layout file
+	 * @param panelX
+	 *            width of the play area
+	 * @param panelY
+	 *            height of the play area
+	 * @param coinSize
+	 *            the side length of a coin
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws IllegalArgumentException
+	 *             if the file is not a valid layout
+	 */
+	public CoinLayout(String fileLocation, int panelX, int panelY, int coinSize)
+			throws IOException {
+		this.file = Paths.get(fileLocation).toAbsolutePath();
+		this.panelX = panelX;
+		this.panelY = panelY;
+		this.coinSize = coinSize;
+		current.set(load());
+	}
+
+	/**
+	 * Returns the current coin locations. The array is never changed once it
+	 * has been returned; a new layout replaces it with a new array.
+	 * 
+	 * @return x-y pairs of the coins
+	 */
+	public int[][] get() {
+		return current.get();
+	}
+
+	/**
+	 * Starts a background thread that reads the layout file again whenever it
+	 * changes. An invalid file is reported and the current layout is kept.
+	 * 
+	 * @throws IOException
+	 *             if the directory of the file cannot be watched
+	 */
+	public void watch() throws IOException {
+		watcher = FileSystems.getDefault().newWatchService();
+		file.getParent().register(watcher,
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watchLoop();
+			}
+		}, "coin layout watcher");
+		// do not keep the program open
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching the layout file.
+	 */
+	public void stopWatching() {
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+				System.err.println("Could not stop watching " + file);
+			}
+		}
+	}
+
+	/**
+	 * Waits for changes to the directory of the layout file, and reloads the
+	 * layout when the file itself changes.
+	 */
+	private void watchLoop() {
+		try {
+			while (true) {
+				WatchKey key = watcher.take();
+				boolean changed = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					Object name = event.context();
+					if (name instanceof Path
+							&& file.getFileName().equals(name)) {
+						changed = true;
+					}
+				}
+				if (changed) {
+					reload();
+				}
+				if (!key.reset()) {
+					System.err.println("Stopped watching " + file);
+					return;
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// watching was stopped
+		}
+	}
+
+	/**
+	 * Reads the layout file and replaces the current layout if it is valid.
+	 */
+	private void reload() {
+		try {
+			int[][] coins = load();
+			current.set(coins);
+			System.out.println("Loaded " + coins.length + " coins from "
+					+ file.getFileName() + ", used from the next session");
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Kept previous coin layout, " + file.getFileName()
+					+ " is not valid: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads and checks the layout file.
+	 * 
+	 * @return x-y pairs of the coins
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private int[][] load() throws IOException {
+		int[][] coins = read(file.toString());
+		validate(coins);
+		return coins;
+	}
+
+	/**
+	 * Checks that there is at least one coin and every coin is inside the
+	 * play area.
+	 * 
+	 * @param coins
+	 *            x-y pairs of the coins
+	 * @throws IllegalArgumentException
+	 *             if the layout is not valid
+	 */
+	private void validate(int[][] coins) {
+		if (coins.length <= 0) {
+			throw new IllegalArgumentException("no coins");
+		}
+		for (int i = 0; i < coins.length; i++) {
+			int x = coins[i][0], y = coins[i][1];
+			if (x < 0 || y < 0 || x + coinSize > panelX
+					|| y + coinSize > panelY) {
+				throw new IllegalArgumentException("coin " + (i + 1) + " at "
+						+ x + "," + y + " is outside the play area");
+			}
+		}
+	}
+
+	/**
+	 * Reads coin locations from a text or binary layout file, without
+	 * checking them.
+	 * 
+	 * @param fileLocation
+	 *            the location of the file
+	 * @return x-y pairs of the coins
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws IllegalArgumentException
+	 *             if the file is not in either layout format
+	 */
+	public static int[][] read(String fileLocation) throws IOException {
+		byte[] bytes = Files.readAllBytes(Paths.get(fileLocation));
+		try {
+			if (isBinary(bytes)) {
+				return readBinary(bytes);
+			}
+			return readText(bytes);
+		} catch (NoSuchElementException e) {
+			throw new IllegalArgumentException("layout ends early");
+		}
+	}
+
+	/**
+	 * Checks for the bytes that start a binary layout.
+	 */
+	private static boolean isBinary(byte[] bytes) {
+		if (bytes.length < MAGIC.length) {
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (bytes[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a binary layout.
+	 */
+	private static int[][] readBinary(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				bytes, MAGIC.length, bytes.length - MAGIC.length));
+		int count = in.readInt();
+		// each coin takes 8 bytes, check before creating the array
+		if (count < 0 || count > (bytes.length - MAGIC.length - 4) / 8) {
+			throw new IllegalArgumentException("layout ends early");
+		}
+		int[][] coins = new int[count][2];
+		for (int i = 0; i < count; i++) {
+			coins[i][0] = in.readInt();
+			coins[i][1] = in.readInt();
+		}
+		return coins;
+	}
+
+	/**
+	 * Reads a text layout.
+	 */
+	private static int[][] readText(byte[] bytes) {
+		Scanner scan = new Scanner(new String(bytes, StandardCharsets.US_ASCII));
+		// get the number of coins, and define array
+		int count = scan.nextInt();
+		// each coin takes at least 4 characters, check before creating the
+		// array
+		if (count < 0 || count > bytes.length / 4) {
+			throw new IllegalArgumentException("layout ends early");
+		}
+		int[][] coins = new int[count][2];
+		// Read in x-y pairs
+		for (int i = 0; i < count; i++) {
+			coins[i][0] = scan.nextInt();
+			coins[i][1] = scan.nextInt();
+		}
+		scan.close();
+		return coins;
+	}
+}
@@ -1,5 +1,6 @@
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -19,22 +20,38 @@ public class Cube {
 	private final int CUBE_3D_COMPONENT;
 	private final int CUBE_TOTAL_LENGTH;
 	private final BufferedImage LOGO;
-	private double x = 0;
-	private double y = 0;
+	private final SpriteCache SPRITE;
+	// written by the cycle, read when the window is drawn
+	private volatile double x = 0;
+	private volatile double y = 0;
 	private final int[] direction = { 0, 0, 0, 0 };
 
+	/**
+	 * Constructor for a Cube without a logo, used when no window is displayed.
+	 */
+	public Cube() {
+		this(null);
+	}
+
 	/**
 	 * Constructor for the Cube, takes a string that is the location of the logo
 	 * to be placed on the square part of the cube. Additionally, sets all
 	 * constants of the cube that are used to speed up calculations.
 	 * 
 	 * @param logoFileLocation
-	 *            the location of the logo
+	 *            the location of the logo, null for no logo
 	 */
 	public Cube(String logoFileLocation) {
-		LOGO = getLogo(logoFileLocation);
+		LOGO = logoFileLocation == null ? null : getLogo(logoFileLocation);
 		CUBE_3D_COMPONENT = (int) (CUBE_LENGTH / 2 / Math.sqrt(2));
 		CUBE_TOTAL_LENGTH = CUBE_3D_COMPONENT + CUBE_LENGTH;
+		// one extra pixel holds the right and bottom depth lines
+		SPRITE = new SpriteCache(CUBE_TOTAL_LENGTH + 1, CUBE_TOTAL_LENGTH + 1) {
+			@Override
+			protected void render(Graphics2D g) {
+				drawShape(g, 0, 0);
+			}
+		};
 	}
 
 	/**
@@ -68,15 +85,31 @@ public class Cube {
 	}
 
 	/**
-	 * Draws a white "cube" that is the moving object
+	 * Returns an image of the cube drawn at the given scale. The image is only
+	 * drawn the first time each scale is asked for.
+	 * 
+	 * @param scale
+	 *            number of device pixels per logical pixel
+	 * @return image of the cube, top left corner at the cube's x,y
+	 */
+	public BufferedImage getSprite(double scale) {
+		return SPRITE.get(scale);
+	}
+
+	/**
+	 * Draws the "cube" with x,y as the top left corner of its bounding box.
 	 * 
 	 * @param g
 	 *            Graphics component
+	 * @param x
+	 *            coordinate for x-axis
+	 * @param y
+	 *            coordinate for y-axis
 	 */
-	public void drawCube(Graphics g) {
+	private void drawShape(Graphics g, int x, int y) {
 		// define width, height, and adjust y axis to make x,y the top left
 		// corner of the square part of the cube
-		int tempY = (int) y + CUBE_3D_COMPONENT;
+		int tempY = y + CUBE_3D_COMPONENT;
 		int width = CUBE_LENGTH, height = CUBE_LENGTH;
 		// Set fill color
 		g.setColor(Color.white);
@@ -84,13 +117,13 @@ public class Cube {
 		// define significant points along the edge of the "cube" shaped
 		// polygon
 		int[] xCord = new int[6];
-		xCord[0] = (int) x; // top left on square
-		xCord[1] = (int) x; // bottom left
-		xCord[2] = (int) (x + width); // bottom right on square
-		xCord[3] = (int) (x + width + CUBE_3D_COMPONENT);
+		xCord[0] = x; // top left on square
+		xCord[1] = x; // bottom left
+		xCord[2] = x + width; // bottom right on square
+		xCord[3] = x + width + CUBE_3D_COMPONENT;
 		// bottom right on 3D component
 		xCord[4] = xCord[3]; // top right
-		xCord[5] = (int) (x + CUBE_3D_COMPONENT); // top left (3D component)
+		xCord[5] = x + CUBE_3D_COMPONENT; // top left (3D component)
 		int[] yCord = new int[6];
 		// y coordinates match x.
 		yCord[0] = tempY;
@@ -105,14 +138,14 @@ public class Cube {
 		// set depth line color
 		g.setColor(Color.black);
 		// draw the depth lines
-		g.drawRect((int) x, tempY, width, height);
-		g.drawLine((int) x + width, tempY, (int) x + width + CUBE_3D_COMPONENT,
-				tempY - CUBE_3D_COMPONENT);
+		g.drawRect(x, tempY, width, height);
+		g.drawLine(x + width, tempY, x + width + CUBE_3D_COMPONENT, tempY
+				- CUBE_3D_COMPONENT);
 
 		// if there is a logo available, center and draw it on the square
 		// portion of the cube
 		if (LOGO != null) {
-			g.drawImage(LOGO, (int) x + (CUBE_LENGTH / 2)
+			g.drawImage(LOGO, x + (CUBE_LENGTH / 2)
 					- (LOGO.getWidth() / 2),
 					tempY + (CUBE_LENGTH / 2) - (LOGO.getWidth() / 2), null);
 		}
@@ -120,25 +153,59 @@ public class Cube {
 	}
 
 	/**
-	 * Checks to see if the coin and the cube have intersected in the window.
+	 * Checks to see if the cube hits the coin at any point while moving in a
+	 * straight line by dx,dy from its current location. A coin cannot be
+	 * skipped over by a large move.
 	 * 
+	 * @param dx
+	 *            the distance moved along the x-axis
+	 * @param dy
+	 *            the distance moved along the y-axis
 	 * @param squareX
 	 * @param squareY
 	 * @param squareLength
 	 * 
-	 * @return True if they have intersected
+	 * @return the fraction of the move, 0-1, at which they first intersect,
+	 *         or -1 if they do not intersect during the move
 	 */
-	public boolean checkCollision(int squareX, int squareY, int squareLength) {
-		// Basic rectangular collision detection, treats both objects as
-		// rectangles.
-		if (squareX < x + CUBE_TOTAL_LENGTH && squareX + squareLength > x) {
-			// System.out.println("X");
-			if (squareY < y + CUBE_TOTAL_LENGTH && squareY + squareLength > y) {
-
-				return true;
+	public double sweepCollision(double dx, double dy, int squareX,
+			int squareY, int squareLength) {
+		// The cube overlaps the coin on an axis while its position is
+		// strictly between these two values
+		double minX = squareX - CUBE_TOTAL_LENGTH, maxX = squareX + squareLength;
+		double minY = squareY - CUBE_TOTAL_LENGTH, maxY = squareY + squareLength;
+		double enterX, exitX, enterY, exitY;
+		// find the fraction of the move spent overlapping along x
+		if (dx == 0) {
+			if (x <= minX || x >= maxX) {
+				return -1;
 			}
+			enterX = Double.NEGATIVE_INFINITY;
+			exitX = Double.POSITIVE_INFINITY;
+		} else {
+			double t1 = (minX - x) / dx, t2 = (maxX - x) / dx;
+			enterX = Math.min(t1, t2);
+			exitX = Math.max(t1, t2);
 		}
-		return false;
+		// and along y
+		if (dy == 0) {
+			if (y <= minY || y >= maxY) {
+				return -1;
+			}
+			enterY = Double.NEGATIVE_INFINITY;
+			exitY = Double.POSITIVE_INFINITY;
+		} else {
+			double t1 = (minY - y) / dy, t2 = (maxY - y) / dy;
+			enterY = Math.min(t1, t2);
+			exitY = Math.max(t1, t2);
+		}
+		// they intersect while overlapping on both axes at once
+		double enter = Math.max(enterX, enterY);
+		double exit = Math.min(exitX, exitY);
+		if (enter >= exit || enter > 1 || exit <= 0) {
+			return -1;
+		}
+		return Math.max(0, enter);
 	}
 
 	/**
@@ -196,6 +263,24 @@ public class Cube {
 		return (int) y;
 	}
 
+	/**
+	 * Returns the current value of x without rounding
+	 * 
+	 * @return x position
+	 */
+	public double getPreciseX() {
+		return x;
+	}
+
+	/**
+	 * Returns the current value of y without rounding
+	 * 
+	 * @return y position
+	 */
+	public double getPreciseY() {
+		return y;
+	}
+
 	/**
 	 * Method called by the constructor to get the logo found in the file
 	 * fileLocation
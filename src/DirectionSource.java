@@ -0,0 +1,17 @@
+import java.util.Random;
+
+/**
+ * A source of input events for a session that is run without a subject. Each
+ * event sets the level of one direction, the same way a key press does.
+ */
+public interface DirectionSource {
+	/**
+	 * Produces the next input event and gives it to the session.
+	 * 
+	 * @param game
+	 *            the session receiving the event
+	 * @param random
+	 *            random numbers for the source to use
+	 */
+	void next(CoinGame game, Random random);
+}
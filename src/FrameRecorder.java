@@ -0,0 +1,291 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Records the frames shown during a session. Frames are drawn into images
+ * taken from a fixed pool and handed to background threads that write them
+ * out, either as a numbered sequence of PNG files or as one file of raw RGB
+ * frames. If no image is free because the writers have fallen behind, the
+ * frame is dropped and counted rather than waiting, so recording never holds
+ * up the display.
+ */
+public class FrameRecorder {
+	/**
+	 * How the frames are written.
+	 */
+	public enum Format {
+		/** a PNG file per frame, in a directory */
+		PNG,
+		/** width*height*3 bytes of RGB per frame, one after another */
+		RAW
+	}
+
+	private static final int POOL_SIZE = 8;
+	private final Format format;
+	private final String output;
+	private final int width;
+	private final int height;
+	private final BlockingQueue<Frame> free;
+	private final BlockingQueue<Frame> filled;
+	private final ExecutorService writers;
+	private final FileChannel channel;
+	private final AtomicLong captured = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	// held while a frame is submitted or the recorder is finished, so no
+	// frame is queued once the writers may have stopped
+	private final Object lock = new Object();
+	private volatile boolean finished = false;
+
+	/**
+	 * Constructor for the FrameRecorder. Creates the image pool and starts the
+	 * writer threads.
+	 * 
+	 * @param format
+	 *            how the frames are written
+	 * @param name
+	 *            the name of the test, used to name the output
+	 * @param width
+	 *            width of a frame in pixels
+	 * @param height
+	 *            height of a frame in pixels
+	 * @throws IOException
+	 *             if the output cannot be created
+	 */
+	public FrameRecorder(Format format, String name, int width, int height)
+			throws IOException {
+		this.format = format;
+		this.width = width;
+		this.height = height;
+		if (format == Format.PNG) {
+			output = name + "-frames";
+			File directory = new File(output);
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Could not create " + output);
+			}
+			channel = null;
+		} else {
+			output = name + ".rgb";
+			channel = FileChannel.open(Paths.get(output),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+		// every image is created now, none are created while recording
+		free = new ArrayBlockingQueue<Frame>(POOL_SIZE);
+		filled = new ArrayBlockingQueue<Frame>(POOL_SIZE);
+		for (int i = 0; i < POOL_SIZE; i++) {
+			free.add(new Frame(width, height));
+		}
+		int threads = Math.max(1,
+				Runtime.getRuntime().availableProcessors() / 2);
+		writers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "frame writer");
+				// do not keep the program open
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		for (int i = 0; i < threads; i++) {
+			writers.execute(new Runnable() {
+				@Override
+				public void run() {
+					writeLoop();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the width of a frame.
+	 * 
+	 * @return width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of a frame.
+	 * 
+	 * @return height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Takes a free image to draw the next frame into. Never waits.
+	 * 
+	 * @return the frame, or null if the frame should be skipped because the
+	 *         writers have fallen behind
+	 */
+	public Frame acquire() {
+		if (finished) {
+			return null;
+		}
+		Frame frame = free.poll();
+		if (frame == null) {
+			dropped.incrementAndGet();
+		}
+		return frame;
+	}
+
+	/**
+	 * Hands a drawn frame to the writers. A frame submitted after the
+	 * recorder was finished is not written and is counted as dropped.
+	 * 
+	 * @param frame
+	 *            a frame returned by acquire()
+	 */
+	public void submit(Frame frame) {
+		synchronized (lock) {
+			if (finished) {
+				dropped.incrementAndGet();
+				free.offer(frame);
+				return;
+			}
+			frame.index = captured.getAndIncrement();
+			// there are never more frames than the queue holds, so this does
+			// not wait
+			filled.offer(frame);
+		}
+	}
+
+	/**
+	 * Writes frames until the recorder is finished and every frame has been
+	 * written.
+	 */
+	private void writeLoop() {
+		// each writer converts raw frames in its own buffer
+		ByteBuffer buffer = format == Format.RAW ? ByteBuffer
+				.allocateDirect(width * height * 3) : null;
+		try {
+			while (!finished || !filled.isEmpty()) {
+				Frame frame = filled.poll(100, TimeUnit.MILLISECONDS);
+				if (frame == null) {
+					continue;
+				}
+				try {
+					write(frame, buffer);
+				} catch (IOException e) {
+					failed.incrementAndGet();
+				}
+				free.offer(frame);
+			}
+		} catch (InterruptedException e) {
+			// recording was stopped
+		}
+	}
+
+	/**
+	 * Writes one frame.
+	 */
+	private void write(Frame frame, ByteBuffer buffer) throws IOException {
+		if (format == Format.PNG) {
+			File file = new File(output, String.format("frame-%06d.png",
+					frame.index));
+			ImageIO.write(frame.image, "png", file);
+			return;
+		}
+		// pack the pixels as RGB bytes
+		int[] pixels = ((DataBufferInt) frame.image.getRaster()
+				.getDataBuffer()).getData();
+		buffer.clear();
+		for (int i = 0; i < pixels.length; i++) {
+			int pixel = pixels[i];
+			buffer.put((byte) (pixel >> 16));
+			buffer.put((byte) (pixel >> 8));
+			buffer.put((byte) pixel);
+		}
+		buffer.flip();
+		// each frame has its own place in the file, so writers can finish in
+		// any order
+		long position = frame.index * buffer.limit();
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	/**
+	 * Stops recording, waits for the frames already submitted to be written
+	 * and closes the output. Frames submitted from now on are dropped.
+	 */
+	public void finish() {
+		synchronized (lock) {
+			finished = true;
+		}
+		writers.shutdown();
+		try {
+			if (!writers.awaitTermination(30, TimeUnit.SECONDS)) {
+				System.err.println("Gave up waiting for frames to be written");
+				writers.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			writers.shutdownNow();
+		}
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				System.err.println("Could not close " + output);
+			}
+		}
+	}
+
+	/**
+	 * Prints the number of frames recorded and dropped.
+	 * 
+	 * @param out
+	 *            where to print
+	 */
+	public void print(PrintWriter out) {
+		out.println("Recording Format Width Height Frames Dropped Failed");
+		out.println(output + " " + format + " " + width + " " + height + " "
+				+ captured.get() + " " + dropped.get() + " " + failed.get());
+	}
+
+	/**
+	 * An image from the pool with the Graphics component used to draw into
+	 * it.
+	 */
+	public static class Frame {
+		private final BufferedImage image;
+		private final Graphics2D graphics;
+		private long index;
+
+		private Frame(int width, int height) {
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			graphics = image.createGraphics();
+		}
+
+		/**
+		 * Returns the Graphics component for drawing the frame. It is reused
+		 * for every frame drawn into this image, so it should not be
+		 * disposed.
+		 * 
+		 * @return Graphics component
+		 */
+		public Graphics2D getGraphics() {
+			return graphics;
+		}
+	}
+}
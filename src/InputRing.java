@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A ring of direction-level records in a memory-mapped file, shared between a
+ * classifier process that writes them and the session that reads them. Both
+ * sides only read and write the mapped memory, so passing a record takes no
+ * locks and no system calls.
+ * <p>
+ * The file starts with a 64 byte header: the int "RING", the int capacity in
+ * records and the long number of records written so far. The records follow,
+ * 16 bytes each: the long sequence number of the record, the int direction
+ * (UP=0,RIGHT=1,DOWN=2,LEFT=3) and the int level (0-9). Record n is stored in
+ * slot n % capacity. All values are big-endian.
+ * <p>
+ * The writer marks a slot with sequence -1, fills it in, writes the sequence
+ * number of the record and then the new count in the header. The reader
+ * checks that the sequence number is the one it expects both before and after
+ * reading the record, so a slot that is overwritten while being read is
+ * skipped and counted as lost. A reader that falls more than a full ring
+ * behind also loses the oldest records. There is one writer per file.
+ * <p>
+ * MappedByteBuffer calls on their own give no ordering, so the JIT could move
+ * the reads of a record or merge the two reads of its sequence number. Each
+ * step above is therefore separated by fence(), a store and then a load of a
+ * volatile field. Under the Java memory model no load or store of the mapped
+ * memory may move across that pair, and the JVM emits a full hardware fence
+ * for it.
+ */
+public class InputRing {
+	private static final int MAGIC = ('R' << 24) | ('I' << 16) | ('N' << 8)
+			| 'G';
+	private static final int HEADER = 64;
+	private static final int RECORD = 16;
+	// header fields
+	private static final int CAPACITY_AT = 4;
+	private static final int WRITTEN_AT = 8;
+	// record fields
+	private static final int AXIS_AT = 8;
+	private static final int LEVEL_AT = 12;
+	private static final long IN_PROGRESS = -1;
+
+	private final String fileLocation;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int capacity;
+	// only written and read by fence()
+	private volatile long fence;
+	// next record written, or read
+	private long next;
+	private long received = 0;
+	private long lost = 0;
+	private long rejected = 0;
+
+	private InputRing(String fileLocation, FileChannel channel,
+			MappedByteBuffer buffer, int capacity, long next) {
+		this.fileLocation = fileLocation;
+		this.channel = channel;
+		this.buffer = buffer;
+		this.capacity = capacity;
+		this.next = next;
+	}
+
+	/**
+	 * Opens a ring for writing, creating the file if it does not exist. An
+	 * existing ring of the same capacity is continued, so a reader that is
+	 * already attached keeps working.
+	 * 
+	 * @param fileLocation
+	 *            the location of the ring file
+	 * @param capacity
+	 *            the number of records the ring holds
+	 * @return the ring
+	 * @throws IOException
+	 *             if the file cannot be created or mapped
+	 */
+	public static InputRing create(String fileLocation, int capacity)
+			throws IOException {
+		if (capacity <= 0 || capacity > (Integer.MAX_VALUE - HEADER) / RECORD) {
+			throw new IllegalArgumentException("capacity must be 1-"
+					+ ((Integer.MAX_VALUE - HEADER) / RECORD));
+		}
+		FileChannel channel = FileChannel.open(Paths.get(fileLocation),
+				StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			int size = HEADER + capacity * RECORD;
+			boolean reuse = channel.size() == size;
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_WRITE, 0, size);
+			long written = 0;
+			if (reuse && buffer.getInt(0) == MAGIC
+					&& buffer.getInt(CAPACITY_AT) == capacity) {
+				written = buffer.getLong(WRITTEN_AT);
+			} else {
+				// a new ring, no slot holds a record yet
+				for (int slot = 0; slot < capacity; slot++) {
+					buffer.putLong(HEADER + slot * RECORD, IN_PROGRESS);
+				}
+				buffer.putLong(WRITTEN_AT, 0);
+				buffer.putInt(CAPACITY_AT, capacity);
+				buffer.putInt(0, MAGIC);
+			}
+			return new InputRing(fileLocation, channel, buffer, capacity,
+					written);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens an existing ring for reading. Only records written after this
+	 * point are read.
+	 * 
+	 * @param fileLocation
+	 *            the location of the ring file
+	 * @return the ring
+	 * @throws IOException
+	 *             if the file cannot be read or mapped
+	 * @throws IllegalArgumentException
+	 *             if the file is not a ring
+	 */
+	public static InputRing open(String fileLocation) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(fileLocation),
+				StandardOpenOption.READ);
+		try {
+			if (channel.size() < HEADER) {
+				throw new IllegalArgumentException("too short for a ring");
+			}
+			MappedByteBuffer header = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, HEADER);
+			int capacity = header.getInt(CAPACITY_AT);
+			if (header.getInt(0) != MAGIC || capacity <= 0
+					|| capacity > (Integer.MAX_VALUE - HEADER) / RECORD
+					|| channel.size() < HEADER + (long) capacity * RECORD) {
+				throw new IllegalArgumentException("not a valid ring");
+			}
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, HEADER + capacity
+							* RECORD);
+			return new InputRing(fileLocation, channel, buffer, capacity,
+					buffer.getLong(WRITTEN_AT));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes one record. Only used by the writer.
+	 * 
+	 * @param axis
+	 *            the direction (UP,RIGHT,DOWN,LEFT)
+	 * @param level
+	 *            the new level, 0-9
+	 */
+	public void publish(int axis, int level) {
+		int at = HEADER + (int) (next % capacity) * RECORD;
+		buffer.putLong(at, IN_PROGRESS);
+		fence();
+		buffer.putInt(at + AXIS_AT, axis);
+		buffer.putInt(at + LEVEL_AT, level);
+		fence();
+		buffer.putLong(at, next);
+		fence();
+		next++;
+		buffer.putLong(WRITTEN_AT, next);
+	}
+
+	/**
+	 * Reads every record written since the last call and gives them to the
+	 * filters in order. Records with an invalid direction or level are
+	 * counted and ignored. Does not create any objects, so it can be called
+	 * every cycle.
+	 * 
+	 * @param conditioner
+	 *            the filters that receive the levels
+	 * @return the number of records given to the filters
+	 */
+	public int poll(SignalConditioner conditioner) {
+		long written = buffer.getLong(WRITTEN_AT);
+		fence();
+		if (written < next) {
+			// the writer started a new ring
+			next = written;
+		}
+		if (written - next > capacity) {
+			// the oldest records have been overwritten already
+			lost += written - capacity - next;
+			next = written - capacity;
+		}
+		int count = 0;
+		while (next < written) {
+			int at = HEADER + (int) (next % capacity) * RECORD;
+			long before = buffer.getLong(at);
+			fence();
+			int axis = buffer.getInt(at + AXIS_AT);
+			int level = buffer.getInt(at + LEVEL_AT);
+			fence();
+			long after = buffer.getLong(at);
+			if (before != next || after != next) {
+				// overwritten by a newer record while being read
+				lost++;
+			} else if (axis < 0 || axis > 3 || level < 0 || level > 9) {
+				rejected++;
+			} else {
+				conditioner.set(axis, level);
+				received++;
+				count++;
+			}
+			next++;
+		}
+		return count;
+	}
+
+	/**
+	 * Keeps the reads and writes of the mapped memory on either side of this
+	 * call in order. Loads and stores before a volatile store cannot move
+	 * after it, later loads and stores cannot move before a volatile load,
+	 * and the two volatile accesses cannot swap. Does not create any objects.
+	 * 
+	 * @return the value read, not used
+	 */
+	private long fence() {
+		fence = next;
+		return fence;
+	}
+
+	/**
+	 * Starts counting the records read, lost and rejected again, for a new
+	 * session.
+	 */
+	public void clearCounts() {
+		received = 0;
+		lost = 0;
+		rejected = 0;
+	}
+
+	/**
+	 * Closes the file. The mapping itself is released when the ring is no
+	 * longer used.
+	 */
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.err.println("Could not close " + fileLocation);
+		}
+	}
+
+	/**
+	 * Prints the number of records read, lost and rejected.
+	 * 
+	 * @param out
+	 *            where to print
+	 */
+	public void print(PrintWriter out) {
+		out.println("Input Capacity Received Lost Rejected");
+		out.println(fileLocation + " " + capacity + " " + received + " "
+				+ lost + " " + rejected);
+	}
+}
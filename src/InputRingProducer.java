@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stands in for the classifier process, writing direction-level records into
+ * an InputRing so the ring input can be tried without the headset. Arguments
+ * are given as name=value pairs:
+ * <ul>
+ * <li>file - the ring file (default input.ring)</li>
+ * <li>capacity - records held by the ring (default 1024)</li>
+ * <li>source - random, a random walk of the levels, or stdin, "direction
+ * level" pairs read from standard input (default random)</li>
+ * <li>rate - records per second written by the random source (default 20)</li>
+ * <li>count - records written before stopping, 0 for no limit (default 0)</li>
+ * </ul>
+ * Start the producer before the testing session, which only reads the ring
+ * if the file exists when it starts.
+ */
+public class InputRingProducer {
+	private String file = "input.ring";
+	private int capacity = 1024;
+	private String source = "random";
+	private double rate = 20;
+	private long count = 0;
+
+	/**
+	 * @param args
+	 *            name=value settings, see the class description
+	 */
+	public static void main(String[] args) {
+		InputRingProducer producer = new InputRingProducer();
+		InputRing ring = null;
+		try {
+			producer.configure(args);
+			ring = InputRing.create(producer.file, producer.capacity);
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Could not start: " + e.getMessage());
+			System.exit(1);
+		}
+		System.out.println("Writing " + producer.source + " records to "
+				+ producer.file);
+		if (producer.source.equals("stdin")) {
+			producer.copyInput(ring);
+		} else {
+			producer.randomWalk(ring);
+		}
+		ring.close();
+	}
+
+	/**
+	 * Reads the name=value settings.
+	 * 
+	 * @param args
+	 *            the settings
+	 */
+	private void configure(String[] args) {
+		Arguments settings = new Arguments(args);
+		file = settings.getString("file", file);
+		capacity = settings.getInt("capacity", capacity);
+		source = settings.getString("source", source);
+		rate = settings.getDouble("rate", rate);
+		count = settings.getLong("count", count);
+		settings.check();
+		if (!source.equals("random") && !source.equals("stdin")) {
+			throw new IllegalArgumentException("unknown source " + source);
+		}
+		if (rate <= 0) {
+			throw new IllegalArgumentException("rate must be positive");
+		}
+	}
+
+	/**
+	 * Moves a random direction one level up or down with each record, at a
+	 * steady rate.
+	 * 
+	 * @param ring
+	 *            where the records are written
+	 */
+	private void randomWalk(InputRing ring) {
+		Random random = new Random();
+		int[] levels = { 0, 0, 0, 0 };
+		long period = (long) (1000000000 / rate);
+		long next = System.nanoTime();
+		for (long i = 0; count == 0 || i < count; i++) {
+			int axis = random.nextInt(4);
+			int level = levels[axis] + (random.nextBoolean() ? 1 : -1);
+			levels[axis] = Math.max(0, Math.min(9, level));
+			ring.publish(axis, levels[axis]);
+			// wait for the time of the next record
+			next += period;
+			long wait;
+			while ((wait = next - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+		}
+	}
+
+	/**
+	 * Writes each direction-level pair read from standard input as soon as
+	 * it is read.
+	 * 
+	 * @param ring
+	 *            where the records are written
+	 */
+	private void copyInput(InputRing ring) {
+		Scanner scan = new Scanner(System.in);
+		for (long i = 0; (count == 0 || i < count) && scan.hasNextInt(); i++) {
+			int axis = scan.nextInt();
+			if (!scan.hasNextInt()) {
+				break;
+			}
+			ring.publish(axis, scan.nextInt());
+		}
+		scan.close();
+	}
+}
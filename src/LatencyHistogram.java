@@ -0,0 +1,108 @@
+/**
+ * Counts latency samples in buckets that grow with the size of the value, so
+ * any value can be recorded without creating objects. Values below 16 have a
+ * bucket each, larger values share a bucket with others within 12.5% of them.
+ */
+public class LatencyHistogram {
+	// sub-buckets per power of two
+	private static final int SUB_BITS = 3;
+	private static final int LINEAR = 2 << SUB_BITS;
+	private final long[] counts = new long[LINEAR + (64 - SUB_BITS - 1)
+			* (1 << SUB_BITS)];
+	private long total = 0;
+	private long max = 0;
+
+	/**
+	 * Adds one sample.
+	 * 
+	 * @param value
+	 *            the sample, negative values are counted as zero
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts[index(value)]++;
+		total++;
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Adds every sample of another histogram to this one.
+	 * 
+	 * @param other
+	 *            the histogram being added
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Returns the number of samples.
+	 * 
+	 * @return number of samples
+	 */
+	public long getCount() {
+		return total;
+	}
+
+	/**
+	 * Returns the largest sample.
+	 * 
+	 * @return largest sample
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the value that the given fraction of samples are at or below.
+	 * The value is the upper edge of the bucket it falls in.
+	 * 
+	 * @param fraction
+	 *            between 0 and 1, for example .99
+	 * @return the percentile value, 0 if there are no samples
+	 */
+	public long getPercentile(double fraction) {
+		long rank = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0) {
+				return Math.min(max, upperEdge(i));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Finds the bucket of a value.
+	 */
+	private static int index(long value) {
+		if (value < LINEAR) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+		return LINEAR + (exponent - SUB_BITS - 1) * (1 << SUB_BITS) + sub;
+	}
+
+	/**
+	 * Finds the largest value that falls in a bucket.
+	 */
+	private static long upperEdge(int index) {
+		if (index < LINEAR) {
+			return index;
+		}
+		int exponent = (index - LINEAR) / (1 << SUB_BITS) + SUB_BITS + 1;
+		int sub = (index - LINEAR) % (1 << SUB_BITS);
+		long low = (long) ((1 << SUB_BITS) + sub) << (exponent - SUB_BITS);
+		return low + (1L << (exponent - SUB_BITS)) - 1;
+	}
+}
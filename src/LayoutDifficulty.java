@@ -0,0 +1,342 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scores how hard coin layouts are by playing many sessions of each one
+ * without a window, steered by an autopilot instead of a subject. The
+ * autopilot sets direction levels the same way the keys do, but adds noise to
+ * the levels and only acts on what it decided some time ago. Arguments are
+ * given as name=value pairs:
+ * <ul>
+ * <li>layouts - comma separated coin location files (default coins.loc)</li>
+ * <li>runs - sessions played per layout (default 2000)</li>
+ * <li>threads - number of sessions run at the same time (default: one per
+ * processor)</li>
+ * <li>level - direction level the autopilot moves at, 1-9 (default 7)</li>
+ * <li>noise - standard deviation of the level, in levels (default 1)</li>
+ * <li>delay - reaction delay in milliseconds (default 250)</li>
+ * <li>rate - decisions per second (default 10)</li>
+ * <li>duration - max duration of a session in seconds (default 60)</li>
+ * <li>step - simulated milliseconds per cycle (default 5)</li>
+ * </ul>
+ * For each layout the share of sessions that collected every coin is printed,
+ * with the mean, standard deviation and percentiles of the time they took.
+ * Run n of every layout uses the same random numbers, so differences between
+ * layouts are not down to luck.
+ */
+public class LayoutDifficulty {
+	// sessions played by one task before it stops splitting
+	private static final int THRESHOLD = 16;
+
+	private String[] layouts;
+	private int runs = 2000;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int level = 7;
+	private double noise = 1;
+	private double delay = 250;// milliseconds
+	private double rate = 10;
+	private int duration = 60;
+	private double step = 5;// milliseconds
+
+	/**
+	 * @param args
+	 *            name=value settings, see the class description
+	 */
+	public static void main(String[] args) {
+		LayoutDifficulty scorer = new LayoutDifficulty();
+		try {
+			scorer.configure(args);
+		} catch (RuntimeException e) {
+			System.err.println("Invalid settings: " + e.getMessage());
+			System.exit(1);
+		}
+		scorer.run();
+	}
+
+	/**
+	 * Reads the name=value settings.
+	 * 
+	 * @param args
+	 *            the settings
+	 */
+	private void configure(String[] args) {
+		Arguments settings = new Arguments(args);
+		layouts = settings.getString("layouts", "coins.loc").split(",");
+		runs = settings.getInt("runs", runs);
+		threads = settings.getInt("threads", threads);
+		level = settings.getInt("level", level);
+		noise = settings.getDouble("noise", noise);
+		delay = settings.getDouble("delay", delay);
+		rate = settings.getDouble("rate", rate);
+		duration = settings.getInt("duration", duration);
+		step = settings.getDouble("step", step);
+		settings.check();
+		if (level < 1 || level > 9) {
+			throw new IllegalArgumentException("level must be 1-9");
+		}
+		if (runs < 1 || rate <= 0 || step <= 0 || delay < 0 || noise < 0) {
+			throw new IllegalArgumentException(
+					"runs, rate and step must be positive, delay and noise "
+							+ "cannot be negative");
+		}
+	}
+
+	/**
+	 * Scores every layout and prints the results.
+	 */
+	private void run() {
+		System.out.println("Runs " + runs + ", threads " + threads
+				+ ", level " + level + ", noise " + noise + ", delay " + delay
+				+ " ms, rate " + rate + "/s, step " + step + " ms");
+		System.out.println("Layout Coins Runs Completed Rate MeanTime SdTime "
+				+ "P10Time P50Time P90Time MeanCoins");
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for (String layout : layouts) {
+				int[][] coins;
+				try {
+					coins = new CoinLayout(layout, CoinGame.PANEL_X,
+							CoinGame.PANEL_Y, CoinGame.COIN_SIZE).get();
+				} catch (IOException | RuntimeException e) {
+					System.err.println("Skipped " + layout + ": "
+							+ e.getMessage());
+					continue;
+				}
+				Runs result = pool.invoke(new RunTask(coins, 0, runs));
+				print(layout, coins.length, result);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Prints the difficulty of one layout. Times are in seconds and only
+	 * include sessions that collected every coin.
+	 * 
+	 * @param layout
+	 *            the layout file
+	 * @param numCoins
+	 *            the number of coins in the layout
+	 * @param result
+	 *            the sessions played on the layout
+	 */
+	private static void print(String layout, int numCoins, Runs result) {
+		double[] times = Arrays.copyOf(result.times, result.completed);
+		Arrays.sort(times);
+		double mean = 0;
+		for (double time : times) {
+			mean += time;
+		}
+		mean = times.length > 0 ? mean / times.length : Double.NaN;
+		double variance = 0;
+		for (double time : times) {
+			variance += (time - mean) * (time - mean);
+		}
+		double sd = times.length > 1 ? Math.sqrt(variance
+				/ (times.length - 1)) : Double.NaN;
+		System.out.println(layout + " " + numCoins + " " + result.runs + " "
+				+ result.completed + " "
+				+ ((double) result.completed / result.runs) + " " + mean + " "
+				+ sd + " " + percentile(times, .1) + " "
+				+ percentile(times, .5) + " " + percentile(times, .9) + " "
+				+ ((double) result.coins / result.runs));
+	}
+
+	/**
+	 * Returns the value that the given fraction of sorted values are at or
+	 * below.
+	 * 
+	 * @param sorted
+	 *            values in ascending order
+	 * @param fraction
+	 *            between 0 and 1
+	 * @return the percentile, NaN if there are no values
+	 */
+	private static double percentile(double[] sorted, double fraction) {
+		if (sorted.length == 0) {
+			return Double.NaN;
+		}
+		int rank = (int) Math.ceil(fraction * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+
+	/**
+	 * Plays one session on a layout.
+	 * 
+	 * @param coins
+	 *            x-y pairs of the coins
+	 * @param run
+	 *            number of the session, used as the seed
+	 * @param result
+	 *            where the outcome is added
+	 */
+	private void play(int[][] coins, int run, Runs result) {
+		Random random = new Random(run);
+		long stepNanos = (long) (step * 1000000);
+		Autopilot pilot = new Autopilot(level, noise,
+				(int) Math.round(delay / step),
+				Math.max(1, (int) Math.round(1000 / (rate * step))));
+		CoinGame game = new CoinGame(new Cube(), coins, new SignalConditioner(
+				new LevelFilter[0]), duration);
+		long time = 0;
+		game.start(time);
+		do {
+			pilot.next(game, random);
+			time += stepNanos;
+		} while (!game.tick(time));
+
+		result.runs++;
+		result.coins += game.getCoins();
+		if (game.getCoins() >= coins.length) {
+			result.times[result.completed++] = game.getElapsedTime()
+					/ 1000000000.;
+		}
+	}
+
+	/**
+	 * Outcomes of a number of sessions on one layout.
+	 */
+	private static class Runs {
+		private int runs = 0;
+		private int completed = 0;
+		private long coins = 0;
+		// times of the completed sessions, in the first completed elements
+		private double[] times;
+
+		private Runs(int capacity) {
+			times = new double[capacity];
+		}
+
+		/**
+		 * Adds the outcomes of other sessions to these.
+		 */
+		private void add(Runs other) {
+			if (completed + other.completed > times.length) {
+				times = Arrays.copyOf(times, completed + other.completed);
+			}
+			System.arraycopy(other.times, 0, times, completed, other.completed);
+			runs += other.runs;
+			completed += other.completed;
+			coins += other.coins;
+		}
+	}
+
+	/**
+	 * Plays a range of sessions on one layout, splitting the range between
+	 * tasks until it is small.
+	 */
+	private class RunTask extends RecursiveTask<Runs> {
+		private static final long serialVersionUID = 1L;
+		private final int[][] coins;
+		private final int from;
+		private final int to;
+
+		private RunTask(int[][] coins, int from, int to) {
+			this.coins = coins;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Runs compute() {
+			if (to - from <= THRESHOLD) {
+				Runs result = new Runs(to - from);
+				for (int run = from; run < to; run++) {
+					play(coins, run, result);
+				}
+				return result;
+			}
+			int middle = (from + to) >>> 1;
+			RunTask first = new RunTask(coins, from, middle);
+			first.fork();
+			Runs result = new RunTask(coins, middle, to).compute();
+			result.add(first.join());
+			return result;
+		}
+	}
+
+	/**
+	 * Steers toward the current coin on both axes at once. A decision is made
+	 * every few cycles with a random error added to the level, and each
+	 * decision is only given to the session a number of cycles later, like
+	 * the reaction time of a subject.
+	 */
+	private static class Autopilot implements DirectionSource {
+		private final int level;
+		private final double noise;
+		private final int interval;
+		// decisions waiting to be given to the session, 4 levels each
+		private final int[] pending;
+		private final int[] decision = { 0, 0, 0, 0 };
+		private int head = 0;
+		private int wait = 0;
+
+		/**
+		 * @param level
+		 *            level moved at
+		 * @param noise
+		 *            standard deviation of the level
+		 * @param delay
+		 *            cycles between a decision and its use
+		 * @param interval
+		 *            cycles between decisions
+		 */
+		private Autopilot(int level, double noise, int delay, int interval) {
+			this.level = level;
+			this.noise = noise;
+			this.interval = interval;
+			pending = new int[(delay + 1) * 4];
+		}
+
+		/**
+		 * Called once per cycle.
+		 */
+		@Override
+		public void next(CoinGame game, Random random) {
+			if (--wait <= 0) {
+				wait = interval;
+				decide(game, random);
+			}
+			// store the decision, then use the one made delay cycles ago
+			int slot = head * 4;
+			System.arraycopy(decision, 0, pending, slot, 4);
+			head = (head + 1) % (pending.length / 4);
+			int used = head * 4;
+			SignalConditioner input = game.getConditioner();
+			for (int axis = 0; axis < 4; axis++) {
+				input.set(axis, pending[used + axis]);
+			}
+		}
+
+		/**
+		 * Chooses the levels that move the center of the cube toward the
+		 * center of the coin.
+		 */
+		private void decide(CoinGame game, Random random) {
+			Cube cube = game.getCube();
+			double center = cube.getTotalLength() / 2.;
+			double dx = game.getCoinX() + CoinGame.COIN_SIZE / 2.
+					- (cube.getPreciseX() + center);
+			double dy = game.getCoinY() + CoinGame.COIN_SIZE / 2.
+					- (cube.getPreciseY() + center);
+			// close enough on an axis once the centers are within half a coin
+			double reach = CoinGame.COIN_SIZE / 2.;
+			decision[1] = dx > reach ? noisyLevel(random) : 0;
+			decision[3] = dx < -reach ? noisyLevel(random) : 0;
+			decision[2] = dy > reach ? noisyLevel(random) : 0;
+			decision[0] = dy < -reach ? noisyLevel(random) : 0;
+		}
+
+		/**
+		 * Returns the level with a random error, limited to 0-9.
+		 */
+		private int noisyLevel(Random random) {
+			int value = level + (int) Math.round(random.nextGaussian() * noise);
+			return Math.max(0, Math.min(9, value));
+		}
+	}
+}
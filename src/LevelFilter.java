@@ -0,0 +1,316 @@
+/**
+ * A single stage of the signal conditioning applied to the direction levels.
+ * Each stage is sampled once per cycle for each of the four directions and
+ * keeps its history in primitive arrays that are created with the stage, so
+ * filtering does not create any objects while the program runs. A cycle of
+ * the filters is always one base tick (CoinGame.BASE_TICK), however often the
+ * session itself cycles.
+ */
+public abstract class LevelFilter {
+	/**
+	 * Number of directions filtered by each stage (UP,RIGHT,DOWN,LEFT)
+	 */
+	protected static final int AXES = 4;
+
+	/**
+	 * Filters one sample of one direction.
+	 * 
+	 * @param axis
+	 *            the direction being filtered
+	 * @param value
+	 *            the input level
+	 * @return the filtered level
+	 */
+	public abstract double apply(int axis, double value);
+
+	/**
+	 * Clears the history of one direction so the stage starts over from a
+	 * level of zero.
+	 * 
+	 * @param axis
+	 *            the direction being cleared
+	 */
+	public abstract void reset(int axis);
+
+	/**
+	 * Returns the delay the stage adds to a change of level, measured in
+	 * cycles.
+	 * 
+	 * @return the added latency in cycles
+	 */
+	public abstract double getLatency();
+
+	/**
+	 * Returns a short description of the stage used in the output.
+	 * 
+	 * @return description of the stage
+	 */
+	public abstract String getName();
+
+	/**
+	 * Creates a stage from its name and parameter as written in the filter
+	 * configuration file.
+	 * 
+	 * @param name
+	 *            one of average, smooth, hysteresis, debounce or deadzone
+	 * @param parameter
+	 *            the setting of the stage
+	 * @return the stage
+	 * @throws IllegalArgumentException
+	 *             if the name or the parameter is not valid
+	 */
+	public static LevelFilter create(String name, double parameter) {
+		switch (name) {
+		case "average":
+			return new MovingAverage((int) parameter);
+		case "smooth":
+			return new Exponential(parameter);
+		case "hysteresis":
+			return new Hysteresis(parameter);
+		case "debounce":
+			return new Debounce((int) parameter);
+		case "deadzone":
+			return new DeadZone(parameter);
+		default:
+			throw new IllegalArgumentException("Unknown filter " + name);
+		}
+	}
+
+	/**
+	 * Mean of the last n samples.
+	 */
+	public static class MovingAverage extends LevelFilter {
+		private final double[][] samples;
+		private final double[] sum = new double[AXES];
+		private final int[] index = new int[AXES];
+
+		/**
+		 * @param length
+		 *            the number of samples averaged
+		 */
+		public MovingAverage(int length) {
+			if (length < 1) {
+				throw new IllegalArgumentException(
+						"Average length must be at least 1");
+			}
+			samples = new double[AXES][length];
+		}
+
+		@Override
+		public double apply(int axis, double value) {
+			// replace the oldest sample in the ring with the new one
+			double[] ring = samples[axis];
+			sum[axis] += value - ring[index[axis]];
+			ring[index[axis]] = value;
+			index[axis] = (index[axis] + 1) % ring.length;
+			return sum[axis] / ring.length;
+		}
+
+		@Override
+		public void reset(int axis) {
+			for (int i = 0; i < samples[axis].length; i++) {
+				samples[axis][i] = 0;
+			}
+			sum[axis] = 0;
+			index[axis] = 0;
+		}
+
+		@Override
+		public double getLatency() {
+			// group delay of a boxcar filter
+			return (samples[0].length - 1) / 2.;
+		}
+
+		@Override
+		public String getName() {
+			return "average(" + samples[0].length + ")";
+		}
+	}
+
+	/**
+	 * Exponential smoothing, each output moves a fraction alpha of the way to
+	 * the input.
+	 */
+	public static class Exponential extends LevelFilter {
+		private final double alpha;
+		private final double[] state = new double[AXES];
+
+		/**
+		 * @param alpha
+		 *            smoothing factor, between 0 (exclusive) and 1
+		 */
+		public Exponential(double alpha) {
+			if (alpha <= 0 || alpha > 1) {
+				throw new IllegalArgumentException(
+						"Smoothing factor must be in (0, 1]");
+			}
+			this.alpha = alpha;
+		}
+
+		@Override
+		public double apply(int axis, double value) {
+			state[axis] += alpha * (value - state[axis]);
+			return state[axis];
+		}
+
+		@Override
+		public void reset(int axis) {
+			state[axis] = 0;
+		}
+
+		@Override
+		public double getLatency() {
+			// mean delay of the impulse response
+			return (1 - alpha) / alpha;
+		}
+
+		@Override
+		public String getName() {
+			return "smooth(" + alpha + ")";
+		}
+	}
+
+	/**
+	 * Holds the output until the input moves more than a set band away from
+	 * it, then follows the input.
+	 */
+	public static class Hysteresis extends LevelFilter {
+		private final double band;
+		private final double[] output = new double[AXES];
+
+		/**
+		 * @param band
+		 *            the change in level needed to move the output
+		 */
+		public Hysteresis(double band) {
+			if (band < 0) {
+				throw new IllegalArgumentException(
+						"Hysteresis band must not be negative");
+			}
+			this.band = band;
+		}
+
+		@Override
+		public double apply(int axis, double value) {
+			// always allow the level to drop to zero so the cube can stop
+			if (value == 0 || Math.abs(value - output[axis]) >= band) {
+				output[axis] = value;
+			}
+			return output[axis];
+		}
+
+		@Override
+		public void reset(int axis) {
+			output[axis] = 0;
+		}
+
+		@Override
+		public double getLatency() {
+			// a change larger than the band passes in the same cycle
+			return 0;
+		}
+
+		@Override
+		public String getName() {
+			return "hysteresis(" + band + ")";
+		}
+	}
+
+	/**
+	 * Passes a new level only once it has been held for a set number of
+	 * cycles.
+	 */
+	public static class Debounce extends LevelFilter {
+		private final int hold;
+		private final double[] output = new double[AXES];
+		private final double[] candidate = new double[AXES];
+		private final int[] count = new int[AXES];
+
+		/**
+		 * @param hold
+		 *            number of cycles a level must be held
+		 */
+		public Debounce(int hold) {
+			if (hold < 1) {
+				throw new IllegalArgumentException(
+						"Debounce hold must be at least 1");
+			}
+			this.hold = hold;
+		}
+
+		@Override
+		public double apply(int axis, double value) {
+			if (value == output[axis]) {
+				// nothing changing, forget any pending level
+				count[axis] = 0;
+			} else if (value == candidate[axis] && count[axis] > 0) {
+				// pending level held for another cycle
+				if (++count[axis] >= hold) {
+					output[axis] = value;
+					count[axis] = 0;
+				}
+			} else {
+				// new pending level
+				candidate[axis] = value;
+				count[axis] = 1;
+				if (hold == 1) {
+					output[axis] = value;
+					count[axis] = 0;
+				}
+			}
+			return output[axis];
+		}
+
+		@Override
+		public void reset(int axis) {
+			output[axis] = 0;
+			candidate[axis] = 0;
+			count[axis] = 0;
+		}
+
+		@Override
+		public double getLatency() {
+			return hold - 1;
+		}
+
+		@Override
+		public String getName() {
+			return "debounce(" + hold + ")";
+		}
+	}
+
+	/**
+	 * Treats any level below a threshold as zero.
+	 */
+	public static class DeadZone extends LevelFilter {
+		private final double threshold;
+
+		/**
+		 * @param threshold
+		 *            levels below this value are dropped
+		 */
+		public DeadZone(double threshold) {
+			this.threshold = threshold;
+		}
+
+		@Override
+		public double apply(int axis, double value) {
+			return value < threshold ? 0 : value;
+		}
+
+		@Override
+		public void reset(int axis) {
+			// no history
+		}
+
+		@Override
+		public double getLatency() {
+			return 0;
+		}
+
+		@Override
+		public String getName() {
+			return "deadzone(" + threshold + ")";
+		}
+	}
+}
@@ -2,10 +2,13 @@ import java.awt.Color;
 import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.Toolkit;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.io.BufferedWriter;
@@ -13,13 +16,13 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
-import java.util.Scanner;
 
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 
 /**
  * 
@@ -36,28 +39,44 @@ public class MainGUI extends JFrame {
 	 */
 
 	// Both
-	private final int PANEL_X = 640;
-	private final int PANEL_Y = 640;
+	// fraction of the smaller screen dimension used for the initial window
+	private final double SCREEN_FRACTION = 0.8;
 	private final Cube CUBE;
 	private final String LOGO_LOCATION = "Logo.png";
 	private final int[] tick = { 0, 0, 0, 0 };// UP,RIGHT,DOWN,LEFT
+	// cycle length in milliseconds, and cycles between redraws of the
+	// window, chosen for the machine by calibration
+	private final int TICK_PERIOD;
+	private final int FRAME_TICKS;
+	private final Calibration calibration;
 	private final boolean training;
 	private final int DURATION;
 	private MyJPanel theDisplay;
-	private boolean run;
+	private volatile boolean run;
 
 	// Training Mode
-	private boolean readyTrain = true;
+	private volatile boolean readyTrain = true;
 	private final int DEFAULT_TRAINING_DURATION = 20;
-	private int start = 0;
+	private volatile int start = 0;
 
 	// Testing mode
-	private final int COIN_SIZE = 25;
 	private final String OUT_FILE_NAME;
 	private final int DEFAULT_TESTING_DURATION = 20;
-	private long startTime;
-	private int coins = 0;
-	private int[][] coinLocations;
+	private CoinLayout layout;
+	private final String LAYOUT_LOCATION = "coins.loc";
+	private SignalConditioner conditioner;
+	// replaced by the cycle thread when a new session starts
+	private volatile CoinGame game;
+	// number of the current session, the sessions share the settings
+	private int session = 1;
+	private final String FILTER_LOCATION = "filters.cfg";
+	private final String[] RECORD_OPTIONS = { "No", "PNG frames",
+			"Raw frames" };
+	private FrameRecorder.Format recordFormat;
+	// read when the window is drawn
+	private volatile FrameRecorder recorder;
+	private final String INPUT_LOCATION = "input.ring";
+	private InputRing input;
 
 	/**
 	 * Constructor for the MainGUI. Does not create/start the window. Use
@@ -94,6 +113,23 @@ public class MainGUI extends JFrame {
 		} else {// Testing
 			// Set the coin locations
 			setCoinLocations();
+			// Create the filters applied to the input
+			conditioner = SignalConditioner.load(FILTER_LOCATION);
+			if (conditioner.getStageCount() > 0) {
+				PrintWriter out = new PrintWriter(System.out);
+				conditioner.print(out, CoinGame.BASE_TICK / 1000000.);
+				out.flush();
+			}
+			// Read input from the classifier if it has created its ring
+			if (new File(INPUT_LOCATION).exists()) {
+				try {
+					input = InputRing.open(INPUT_LOCATION);
+					System.out.println("Reading input from " + INPUT_LOCATION);
+				} catch (IOException | IllegalArgumentException e) {
+					System.err.println("Could not read input from "
+							+ INPUT_LOCATION + ": " + e.getMessage());
+				}
+			}
 			// Get the testing duration
 			int n = -1;
 			do {
@@ -115,36 +151,91 @@ public class MainGUI extends JFrame {
 			} while (s == null);
 			// Set the output file name
 			OUT_FILE_NAME = s;
+			// Ask whether to record the frames of the session
+			int record = JOptionPane.showOptionDialog(null,
+					"Record the session?", "Recording",
+					JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE,
+					null, RECORD_OPTIONS, RECORD_OPTIONS[0]);
+			if (record > 0) {
+				recordFormat = record == 1 ? FrameRecorder.Format.PNG
+						: FrameRecorder.Format.RAW;
+			}
 		}
+
+		// Measure the machine and choose the cycle length and frame rate, with
+		// the filters, input and recording of the session
+		calibration = calibrate();
+		TICK_PERIOD = calibration.getTickPeriod();
+		FRAME_TICKS = calibration.getFrameTicks();
+		PrintWriter calibrationOut = new PrintWriter(System.out);
+		calibration.print(calibrationOut);
+		calibrationOut.flush();
+	}
+
+	/**
+	 * Method called by constructor, measures how fast this machine can run
+	 * the cycles and draw the window. In testing mode the trial cycles use
+	 * the filters and input ring of the session, and draw the recording copy
+	 * of each frame if the session is recorded. Frames are measured at the
+	 * starting size of the window on the default screen.
+	 * 
+	 * @return the measurements and the chosen rates
+	 */
+	private Calibration calibrate() {
+		Dimension size = getInitialSize();
+		double scale = 1;
+		int refreshRate = 0;
+		if (!GraphicsEnvironment.isHeadless()) {
+			GraphicsDevice screen = GraphicsEnvironment
+					.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+			scale = screen.getDefaultConfiguration().getDefaultTransform()
+					.getScaleX();
+			refreshRate = screen.getDisplayMode().getRefreshRate();
+		}
+		if (training) {
+			return Calibration.measure(new SignalConditioner(
+					new LevelFilter[0]), null, false,
+					(int) (size.width * scale), (int) (size.height * scale),
+					scale, refreshRate);
+		}
+		Calibration result = Calibration.measure(conditioner, input,
+				recordFormat != null, (int) (size.width * scale),
+				(int) (size.height * scale), scale, refreshRate);
+		// nothing given during the trial cycles carries into the session
+		conditioner.clearAll();
+		if (input != null) {
+			input.clearCounts();
+		}
+		return result;
 	}
 
 	/**
 	 * Method called by constructor to read in coin location from file
 	 * "coins.loc". Will exit the program if file is not found, there is a
-	 * file-read error, or if there aren't any locations.
+	 * file-read error, or if the locations are not valid. Afterwards the file
+	 * is watched, and changes are used by the session when it starts.
 	 */
 	private void setCoinLocations() {
 		// try-catch will close program if error detected
 		try {
-			// Create a scanner to the file
-			Scanner scan = new Scanner(new File("coins.loc"));
-			// get the number of coins, and define array
-			coinLocations = new int[scan.nextInt()][2];
-			// Read in x-y pairs
-			for (int i = 0; i < coinLocations.length; i++) {
-				coinLocations[i][0] = scan.nextInt();
-				coinLocations[i][1] = scan.nextInt();
-			}
-			// Close the file
-			scan.close();
+			layout = new CoinLayout(LAYOUT_LOCATION, CoinGame.PANEL_X,
+					CoinGame.PANEL_Y, CoinGame.COIN_SIZE);
 		} catch (IOException e) {
-			System.err
-					.println("Could not connect to the coin locations in coins.loc");
+			System.err.println("Could not connect to the coin locations in "
+					+ LAYOUT_LOCATION);
 			System.exit(1);
-		}
-		if (coinLocations.length <= 0) {
+		} catch (IllegalArgumentException e) {
+			System.err.println("Invalid coin locations in " + LAYOUT_LOCATION
+					+ ": " + e.getMessage());
 			System.exit(1);
 		}
+		// pick up edits made before the session starts
+		try {
+			layout.watch();
+		} catch (IOException e) {
+			System.err.println("Could not watch " + LAYOUT_LOCATION
+					+ " for changes");
+		}
 	}
 
 	/**
@@ -164,15 +255,19 @@ public class MainGUI extends JFrame {
 		theDisplay.resetCube();
 		theDisplay.addKeyListener(theDisplay);
 		theDisplay.setBackground(Color.black);
-		theDisplay.setPreferredSize(new Dimension(PANEL_X, PANEL_Y));
+		theDisplay.setPreferredSize(getInitialSize());
+		// let the display take all of the space when the window is resized
 		c.gridy = 1;
+		c.fill = GridBagConstraints.BOTH;
+		c.weightx = 1;
+		c.weighty = 1;
 		pane.add(theDisplay, c);
 		theDisplay.setFocusable(true);
 		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
 		// Create timer, and set the run = true
 		run = true;
-		Timer timer = createTimer();
+		Thread timer = createTimer();
 
 		// Mode-specific toggles.
 		if (training) {
@@ -184,38 +279,111 @@ public class MainGUI extends JFrame {
 				System.exit(0);
 			}
 		}
+		// Create the session before the first cycle can run. [only used by
+		// test()]
+		if (!training) {
+			startSession();
+		}
 		// start the timer
 		timer.start();
-		// record the start time. [only used by test()]
-		startTime = System.nanoTime();
 	}
 
 	/**
-	 * Method called by init(), returns a Timer object containing the
-	 * instructions to execute every cycle.
+	 * Creates a session with the latest coin locations and records its start
+	 * time. Starts recording it if recording was asked for. [only used in
+	 * testing mode]
+	 */
+	private void startSession() {
+		if (recordFormat != null) {
+			try {
+				recorder = new FrameRecorder(recordFormat, getSessionName(),
+						CoinGame.PANEL_X, CoinGame.PANEL_Y);
+			} catch (IOException e) {
+				recorder = null;
+				System.err
+						.println("Could not start recording, the session will not be recorded");
+			}
+		}
+		// nothing given before the session carries into it
+		conditioner.clearAll();
+		if (input != null) {
+			input.clearCounts();
+		}
+		CoinGame next = new CoinGame(CUBE, layout.get(), conditioner,
+				DURATION);
+		next.start(System.nanoTime());
+		game = next;
+		theDisplay.setGame(next);
+	}
+
+	/**
+	 * Returns the name the output of the current session is written under.
+	 * The first session uses the name of the test, later ones add their
+	 * number.
+	 * 
+	 * @return name of the session
+	 */
+	private String getSessionName() {
+		return session == 1 ? OUT_FILE_NAME : OUT_FILE_NAME + "-" + session;
+	}
+
+	/**
+	 * Method called by init(), returns the starting size of the display. The
+	 * display is made large enough to fill most of the screen, but never
+	 * smaller than the logical play area.
+	 * 
+	 * @return the preferred size of the display
+	 */
+	private Dimension getInitialSize() {
+		Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+		double fit = Math.min(screen.width / (double) CoinGame.PANEL_X,
+				screen.height / (double) CoinGame.PANEL_Y)
+				* SCREEN_FRACTION;
+		fit = Math.max(1, fit);
+		return new Dimension((int) (CoinGame.PANEL_X * fit),
+				(int) (CoinGame.PANEL_Y * fit));
+	}
+
+	/**
+	 * Method called by init(), returns a Thread containing the instructions to
+	 * execute every cycle. The cycles run on their own thread, paced with
+	 * LockSupport, instead of on a Swing Timer, which creates an event for
+	 * every cycle.
 	 * 
-	 * @return the Timer object
+	 * @return the timer Thread, not yet started
 	 */
-	private Timer createTimer() {
+	private Thread createTimer() {
 		// Create the instructions that will execute every cycle
-		ActionListener actionListener = new ActionListener() {
+		Thread timer = new Thread(new Runnable() {
 			@Override
-			public void actionPerformed(ActionEvent actionEvent) {
-				// checks to see if program is supposed to be running
-				if (run) {
-					// Divides into specific modes
-					if (training) {
-						train();
-					} else {
-						test();
+			public void run() {
+				TickLoop loop = new TickLoop(TICK_PERIOD * 1000000L);
+				int frame = 0;
+				while (true) {
+					// wait for the start of the next cycle
+					loop.await();
+					// checks to see if program is supposed to be running
+					if (run) {
+						// Divides into specific modes
+						if (training) {
+							train();
+						} else {
+							test();
+						}
+						// Redraw the window every few cycles. Swing posts one
+						// event to do so, unless one is already waiting.
+						if (++frame >= FRAME_TICKS) {
+							frame = 0;
+							repaint();
+						}
 					}
-					// Redraw the window
-					repaint();
 				}
 			}
-		};
-		// Return the timer which ticks ~.005 s
-		return new Timer(5, actionListener);
+		}, "timer");
+		// do not keep the program open once the window is closed
+		timer.setDaemon(true);
+		// Return the timer which ticks every TICK_PERIOD ms
+		return timer;
 	}
 
 	/**
@@ -223,74 +391,13 @@ public class MainGUI extends JFrame {
 	 * mode.
 	 */
 	private void test() {
-		// Encapsulate the cube inside the window, preventing it from leaving
-		// the screen
-		int[] direction = CUBE.getDirection();
-
-		if (CUBE.getX() + CUBE.getTotalLength() > PANEL_X) {
-			direction[1] = 0;
-		}
-		if (CUBE.getX() < 0) {
-			direction[3] = 0;
-		}
-		if (CUBE.getY() + CUBE.getTotalLength() > PANEL_Y) {
-			direction[2] = 0;
-		}
-		if (CUBE.getY() < 0) {
-			direction[0] = 0;
-		}
-
-		// Iterates through the array that controls the directional movement of
-		// the cube.
-		for (int i = 0; i < 4; i++) {
-			// increase the directional tick.
-			tick[i]++;
-			// assuming direction value is not zero, activate motion
-			// proportionally to the value of direction
-			if (direction[i] != 0 && tick[i] % (10 - direction[i]) == 0) {
-				// Define specific commands for each direction
-				switch (i) {
-				case 0: // UP
-					CUBE.changeY(-2);
-					break;
-				case 1: // RIGHT
-					CUBE.changeX(2);
-					break;
-				case 2: // DOWN
-					CUBE.changeY(2);
-					break;
-				case 3: // LEFT
-					CUBE.changeX(-2);
-					break;
-				}
-				// Reset the tick
-				tick[i] = 0;
-			} else if (direction[i] == 0) {
-				// Keep the tick at 0 if direction is 0. (Prevents extremely
-				// large data values and unexpected results when direction is
-				// not zero)
-				tick[i] = 0;
-			}
+		// take the levels sent by the classifier since the last cycle
+		if (input != null) {
+			input.poll(game.getConditioner());
 		}
-		// define a temporary stopTime (ensures better accuracy between the
-		// check and the print of the value
-		long stopTime = System.nanoTime();
-		// Execute if the cube has hit the "coin"
-		if (theDisplay.checkCollision()) {
-			// increase the number of coins found, automatically displays and
-			// calculates for the next coin in the list.
-			coins++;
-			// Checks to see if there are no more coins, if so:
-			if (coins >= coinLocations.length) {
-				// stop the test, call close()
-				close(stopTime);
-
-			}
-			// Execute if the test has exceed the desired length (usually will
-			// be larger than the target value by a factor of .01 or less)
-		} else if ((stopTime - startTime > (long) DURATION * (long) 1000000000)) {
-			// System.out.println(stopTime - startTime);
-			close(stopTime);
+		// run the cycle, stop the test if it has ended
+		if (game.tick(System.nanoTime())) {
+			close();
 		}
 	}
 
@@ -307,12 +414,13 @@ public class MainGUI extends JFrame {
 		// the training. If it is, it doesn't execute the code
 		if (!readyTrain) {
 			// A basic count-down for the training session
-			if (tick[0] % (1000 / 5) == 0) {
-				System.out.print(" " + (DURATION - (tick[0] / (1000 / 5))));
+			if (tick[0] % (1000 / TICK_PERIOD) == 0) {
+				System.out.print(" "
+						+ (DURATION - (tick[0] / (1000 / TICK_PERIOD))));
 			}
 
 			// Will enter if the training has run for the set duration
-			if (tick[0] > DURATION * (1000 / 5)) {
+			if (tick[0] > DURATION * (1000 / TICK_PERIOD)) {
 				// reset tick
 				tick[0] = 0;
 				// disable cycle, enable checking for signal
@@ -340,20 +448,23 @@ public class MainGUI extends JFrame {
 				return;
 			}
 			// Code only executes if Duration has not been met
+			// .5 pixels per base tick, so the speed does not depend on the
+			// cycle length
+			double step = .5 * TICK_PERIOD * 1000000 / CoinGame.BASE_TICK;
 			// Specify action depending on which direction is being trained
 			switch (start) {
 			case 1:// UP
-				CUBE.changeY(-.5);
+				CUBE.changeY(-step);
 				break;
 			case 2:// DOWN
-				CUBE.changeY(.5);
+				CUBE.changeY(step);
 				break;
 			case 3:// LEFT
-				CUBE.changeX(-.5);
+				CUBE.changeX(-step);
 
 				break;
 			case 4:// RIGHT
-				CUBE.changeX(.5);
+				CUBE.changeX(step);
 
 				break;
 			}
@@ -361,9 +472,9 @@ public class MainGUI extends JFrame {
 			tick[0]++;
 
 			// if cube is going to leave the screen, send it back to the center
-			if (CUBE.getX() + CUBE.getTotalLength() > PANEL_X
+			if (CUBE.getX() + CUBE.getTotalLength() > CoinGame.PANEL_X
 					|| CUBE.getX() < 0
-					|| CUBE.getY() + CUBE.getTotalLength() > PANEL_Y
+					|| CUBE.getY() + CUBE.getTotalLength() > CoinGame.PANEL_Y
 					|| CUBE.getY() < 0) {
 				theDisplay.resetCube();
 			}
@@ -372,30 +483,86 @@ public class MainGUI extends JFrame {
 
 	/**
 	 * Method called by testing to execute when the test duration has ended.
-	 * Outputs data to file.
+	 * Outputs data to file, then starts the next session or closes the
+	 * program. Runs on the cycle thread, which waits here until the subject
+	 * has answered.
 	 */
-	private void close(long stopTime) {
+	private void close() {
 		// disable the cycles
 		run = false;
+		// write out the frames still waiting
+		if (recorder != null) {
+			recorder.finish();
+		}
 		// Tries to print to file, prints to console if it is unable to.
 		try {
 			// Print file name, duration, number of coins
 			PrintWriter out = new PrintWriter(new BufferedWriter(
-					new FileWriter(OUT_FILE_NAME + ".txt")));
-			out.println("Name Time NumCoins");
-			out.println(OUT_FILE_NAME + " "
-					+ ((stopTime - startTime) / 1000000000.) + " " + coins);
+					new FileWriter(getSessionName() + ".txt")));
+			printResults(out);
 			out.close();
 		} catch (IOException e) {
 			System.err.println("Could not write data to file, printing in cmd");
-			System.out.println("Name Time NumCoins");
-			System.out.println(OUT_FILE_NAME + " "
-					+ ((stopTime - startTime) / 1000000000.) + " " + coins);
+			PrintWriter out = new PrintWriter(System.out);
+			printResults(out);
+			out.flush();
+		}
+		recorder = null;
+		// Swing may only be used on the event dispatch thread, so ask there
+		try {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				@Override
+				public void run() {
+					nextSession();
+				}
+			});
+		} catch (InterruptedException | InvocationTargetException e) {
+			System.err.println("Could not start the next session: " + e);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Method called by close() on the event dispatch thread. Asks whether to
+	 * run another session with the same settings, using the coin locations
+	 * as they are now, and starts it or closes the program.
+	 */
+	private void nextSession() {
+		if (0 == JOptionPane.showConfirmDialog(null, "Saved "
+				+ getSessionName() + ". Start the next session? \"No\" will "
+				+ "close the program", "Next session",
+				JOptionPane.YES_NO_OPTION)) {
+			session++;
+			startSession();
+			run = true;
+			return;
+		}
+		layout.stopWatching();
+		if (input != null) {
+			input.close();
 		}
 		// Close the program
 		System.exit(0);
 	}
 
+	/**
+	 * Prints the results of the session and the calibration of the machine,
+	 * followed by the recording and input statistics if they were used.
+	 * 
+	 * @param out
+	 *            where to print
+	 */
+	private void printResults(PrintWriter out) {
+		game.print(out, getSessionName());
+		calibration.print(out);
+		if (recorder != null) {
+			recorder.print(out);
+		}
+		if (input != null) {
+			input.print(out);
+		}
+	}
+
 	private class MyJPanel extends JPanel implements KeyListener {
 
 		/**
@@ -406,6 +573,15 @@ public class MainGUI extends JFrame {
 		 * 
 		 */
 		private static final long serialVersionUID = 1025120368596590759L;
+		// draws the session on the display
+		private final SceneRenderer renderer = new SceneRenderer(CUBE);
+		// draws the session for the recording, one pixel per logical pixel
+		private final SceneRenderer captureRenderer = new SceneRenderer(CUBE);
+		// scaling done by the system, looked up when the screen changes
+		private GraphicsConfiguration lastConfig;
+		private double systemScale = 1;
+		// levels given by the key being handled, -1 for no change
+		private final int[] keyLevels = { -1, -1, -1, -1 };
 
 		/**
 		 * paintComponent method is part of the JPanel class and is called to
@@ -417,67 +593,66 @@ public class MainGUI extends JFrame {
 		@Override
 		public void paintComponent(Graphics g) {
 			super.paintComponent(g);
-
-			// draws coin if testing
-			if (!training) {
-				drawCoin(g, coinLocations[coins][0], coinLocations[coins][1]);
+			updateSystemScale();
+			renderer.drawView((Graphics2D) g, getWidth(), getHeight(),
+					systemScale);
+
+			// draw the same frame for the recording
+			FrameRecorder current = recorder;
+			if (current != null) {
+				captureFrame(current);
 			}
-			// draw cube
-			CUBE.drawCube(g);
+		}
 
+		/**
+		 * Looks up the scaling done by the system (such as high DPI displays)
+		 * when the panel is first shown or moves to another screen.
+		 */
+		private void updateSystemScale() {
+			GraphicsConfiguration config = getGraphicsConfiguration();
+			if (config != null && config != lastConfig) {
+				lastConfig = config;
+				systemScale = config.getDefaultTransform().getScaleX();
+			}
 		}
 
 		/**
-		 * Checks to see if the coin and the cube have intersected in the
-		 * window.
+		 * Draws the current frame at the logical size into an image from the
+		 * recorder. Skips the frame if the recorder has no free image.
 		 * 
-		 * @return True if they have intersected
+		 * @param recorder
+		 *            the recorder of the current session
 		 */
-		public boolean checkCollision() {
-			// Basic rectangular collision detection, treats both objects as
-			// rectangles.
-			int coinX = coinLocations[coins][0];
-			int coinY = coinLocations[coins][1];
-			if (coinX < CUBE.getX() + CUBE.getTotalLength()
-					&& coinX + COIN_SIZE > CUBE.getX()) {
-				// System.out.println("X");
-				if (coinY < CUBE.getY() + CUBE.getTotalLength()
-						&& coinY + COIN_SIZE > CUBE.getY()) {
-
-					return true;
-				}
+		private void captureFrame(FrameRecorder recorder) {
+			FrameRecorder.Frame frame = recorder.acquire();
+			if (frame == null) {
+				return;
 			}
-			return false;
+			Graphics2D g = frame.getGraphics();
+			g.setColor(Color.black);
+			g.fillRect(0, 0, recorder.getWidth(), recorder.getHeight());
+			captureRenderer.draw(g);
+			recorder.submit(frame);
 		}
 
 		/**
-		 * Reset the position of the cube to the ~center of the window
+		 * Gives the renderers the session to draw.
+		 * 
+		 * @param game
+		 *            the session
 		 */
-		public void resetCube() {
-			int halfCubeTotalLength = CUBE.getTotalLength() / 2;
-			CUBE.setX(PANEL_X / 2 - halfCubeTotalLength);
-			CUBE.setY(PANEL_Y / 2 - halfCubeTotalLength);
+		public void setGame(CoinGame game) {
+			renderer.setGame(game);
+			captureRenderer.setGame(game);
 		}
 
 		/**
-		 * Draws a yellow cube that is the coin
-		 * 
-		 * @param g
-		 *            Graphics component
-		 * @param x
-		 *            coordinate for x-axis
-		 * @param y
-		 *            coordinate for y-axis
+		 * Reset the position of the cube to the ~center of the window
 		 */
-		private void drawCoin(Graphics g, int x, int y) {
-			g.setColor(Color.yellow);
-			g.fillRect(x, y, COIN_SIZE, COIN_SIZE);
-			/*
-			 * Un-comment to draw a square around the cube that represents the
-			 * used in collision detection
-			 */
-			// int cubeLength = getLength(CUBE_LENGTH) + CUBE_LENGTH;
-			// g.drawRect((int) cubeX, (int) cubeY, cubeLength, cubeLength);
+		public void resetCube() {
+			int halfCubeTotalLength = CUBE.getTotalLength() / 2;
+			CUBE.setX(CoinGame.PANEL_X / 2 - halfCubeTotalLength);
+			CUBE.setY(CoinGame.PANEL_Y / 2 - halfCubeTotalLength);
 		}
 
 		/**
@@ -505,7 +680,11 @@ public class MainGUI extends JFrame {
 			// ----------------------
 			// get the char code. (in hindsight, should have started with
 			// charID... but hindsight)
-			int[] direction = CUBE.getDirection();
+			// Levels are collected here first, -1 for no change, then given
+			// to the filters, which update the cube every cycle
+			SignalConditioner conditioner = game.getConditioner();
+			int[] direction = keyLevels;
+			Arrays.fill(direction, -1);
 			char test = arg0.getKeyChar();
 			// check for first row ('1'-'0')
 			if ('0' <= test && test <= '9') {
@@ -645,12 +824,18 @@ public class MainGUI extends JFrame {
 				break;
 			case 32 - 37:
 				// spacebar: remove all direction settings
-				Arrays.fill(direction, 0);
+				conditioner.clearAll();
 			}
 			// ESC: reset cube and set directions to 0
 			if (code == 27) {
-				Arrays.fill(direction, 0);
-				resetCube();
+				conditioner.clearAll();
+				game.requestReset();
+			}
+			// pass on the levels that changed
+			for (int i = 0; i < 4; i++) {
+				if (direction[i] >= 0) {
+					conditioner.set(i, direction[i]);
+				}
 			}
 		}
 
@@ -0,0 +1,262 @@
+import java.io.PrintWriter;
+
+/**
+ * Accumulates path-efficiency statistics for each coin of a testing session.
+ * Values are updated incrementally every cycle using only a handful of running
+ * totals, so no positions are recorded and no extra passes are needed when the
+ * session ends. One row of results is kept per collected coin.
+ * <p>
+ * The optimum for a coin is the straight-line gap the cube has to close
+ * before its edge touches the coin, not the distance between their positions,
+ * since touching is all that is needed to collect it.
+ */
+public class PathTracker {
+	private final int coinSize;
+	// per-coin results, indexed by coin number
+	private final long[] collectTime;
+	private final double[] distance;
+	private final double[] optimal;
+	private final int[] directionChanges;
+	private final long[] idleTime;
+	private int collected = 0;
+	// session totals, kept up to date as coins are collected
+	private double sumRatio = 0;
+	private int sumChanges = 0;
+	private long sumIdle = 0;
+
+	// running values for the coin currently on screen
+	private long spawnTime;
+	private long lastTime;
+	private double lastX;
+	private double lastY;
+	private double runDistance;
+	private double runOptimal;
+	private int runChanges;
+	private long runIdle;
+	private int lastHeadingX;
+	private int lastHeadingY;
+	// true while a coin is on screen and not yet collected
+	private boolean running = false;
+
+	/**
+	 * Constructor for the PathTracker. Space for the results of every coin is
+	 * reserved up front so nothing is created while the session runs.
+	 * 
+	 * @param numCoins
+	 *            the number of coins in the session
+	 * @param coinSize
+	 *            the side length of a coin
+	 */
+	public PathTracker(int numCoins, int coinSize) {
+		this.coinSize = coinSize;
+		collectTime = new long[numCoins];
+		distance = new double[numCoins];
+		optimal = new double[numCoins];
+		directionChanges = new int[numCoins];
+		idleTime = new long[numCoins];
+	}
+
+	/**
+	 * Starts tracking a newly displayed coin. Records the spawn time and
+	 * position of the cube, and the straight-line distance the cube would have
+	 * to travel to touch the coin.
+	 * 
+	 * @param time
+	 *            the time the coin appeared (System.nanoTime())
+	 * @param cubeX
+	 *            x location of the cube
+	 * @param cubeY
+	 *            y location of the cube
+	 * @param cubeLength
+	 *            total length of the cube
+	 * @param coinX
+	 *            x location of the coin
+	 * @param coinY
+	 *            y location of the coin
+	 */
+	public void spawn(long time, double cubeX, double cubeY, int cubeLength,
+			int coinX, int coinY) {
+		spawnTime = time;
+		lastTime = time;
+		lastX = cubeX;
+		lastY = cubeY;
+		runDistance = 0;
+		runChanges = 0;
+		runIdle = 0;
+		lastHeadingX = 0;
+		lastHeadingY = 0;
+		running = true;
+		// gap between the two rectangles along each axis, zero if they
+		// already overlap on that axis
+		double gapX = Math.max(0,
+				Math.max(coinX - (cubeX + cubeLength), cubeX - (coinX + coinSize)));
+		double gapY = Math.max(0,
+				Math.max(coinY - (cubeY + cubeLength), cubeY - (coinY + coinSize)));
+		runOptimal = Math.sqrt(gapX * gapX + gapY * gapY);
+	}
+
+	/**
+	 * Updates the running values with the state of the current cycle. Should
+	 * be called once per cycle after the cube has moved.
+	 * 
+	 * @param time
+	 *            the time of the cycle (System.nanoTime())
+	 * @param cubeX
+	 *            x location of the cube
+	 * @param cubeY
+	 *            y location of the cube
+	 * @param direction
+	 *            the direction array used for the cycle (UP,RIGHT,DOWN,LEFT)
+	 */
+	public void update(long time, double cubeX, double cubeY, int[] direction) {
+		// add the distance moved since the last cycle
+		double dx = cubeX - lastX;
+		double dy = cubeY - lastY;
+		if (dx != 0 || dy != 0) {
+			runDistance += Math.sqrt(dx * dx + dy * dy);
+		}
+		lastX = cubeX;
+		lastY = cubeY;
+
+		// heading the subject is asking for, -1, 0 or 1 on each axis
+		int headingX = (direction[1] != 0 ? 1 : 0) - (direction[3] != 0 ? 1 : 0);
+		int headingY = (direction[2] != 0 ? 1 : 0) - (direction[0] != 0 ? 1 : 0);
+		if (headingX == 0 && headingY == 0) {
+			// no motion requested, count the cycle as idle
+			runIdle += time - lastTime;
+		} else {
+			// count a change whenever a new heading differs from the last one
+			if ((lastHeadingX != 0 || lastHeadingY != 0)
+					&& (headingX != lastHeadingX || headingY != lastHeadingY)) {
+				runChanges++;
+			}
+			lastHeadingX = headingX;
+			lastHeadingY = headingY;
+		}
+		lastTime = time;
+	}
+
+	/**
+	 * Moves the tracked position without counting it as distance traveled.
+	 * Used when the cube is placed somewhere by the program rather than moved
+	 * by the subject.
+	 * 
+	 * @param cubeX
+	 *            new x location of the cube
+	 * @param cubeY
+	 *            new y location of the cube
+	 */
+	public void reposition(double cubeX, double cubeY) {
+		lastX = cubeX;
+		lastY = cubeY;
+	}
+
+	/**
+	 * Stores the running values as the results of the current coin.
+	 * 
+	 * @param time
+	 *            the time the coin was collected (System.nanoTime())
+	 */
+	public void collect(long time) {
+		collectTime[collected] = time - spawnTime;
+		distance[collected] = runDistance;
+		optimal[collected] = runOptimal;
+		directionChanges[collected] = runChanges;
+		idleTime[collected] = runIdle;
+		sumRatio += getRatio(collected);
+		sumChanges += runChanges;
+		sumIdle += runIdle;
+		collected++;
+		running = false;
+	}
+
+	/**
+	 * Returns the number of coins that have results.
+	 * 
+	 * @return collected coins
+	 */
+	public int getCollected() {
+		return collected;
+	}
+
+	/**
+	 * Returns the time one collected coin took, from appearing to being
+	 * collected.
+	 * 
+	 * @param coin
+	 *            number of the coin, from 0
+	 * @return collection time in nanoseconds
+	 */
+	public long getCollectTime(int coin) {
+		return collectTime[coin];
+	}
+
+	/**
+	 * Returns the mean ratio of distance traveled to the straight-line optimum
+	 * over all collected coins.
+	 * 
+	 * @return mean path ratio, 0 if no coins have been collected
+	 */
+	public double getMeanRatio() {
+		if (collected == 0) {
+			return 0;
+		}
+		return sumRatio / collected;
+	}
+
+	/**
+	 * Returns the total number of direction changes over all collected coins
+	 * and the coin still on screen, so a session that ran out of time keeps
+	 * the changes made since the last collection.
+	 * 
+	 * @return total direction changes
+	 */
+	public int getTotalDirectionChanges() {
+		return sumChanges + (running ? runChanges : 0);
+	}
+
+	/**
+	 * Returns the total idle time over all collected coins and the coin still
+	 * on screen in seconds.
+	 * 
+	 * @return total idle time
+	 */
+	public double getTotalIdleTime() {
+		return (sumIdle + (running ? runIdle : 0)) / 1000000000.;
+	}
+
+	/**
+	 * Ratio of the distance traveled to the straight-line gap to contact for
+	 * one coin. A coin that spawned touching the cube counts as a perfect path.
+	 */
+	private double getRatio(int coin) {
+		if (optimal[coin] <= 0) {
+			return 1;
+		}
+		return distance[coin] / optimal[coin];
+	}
+
+	/**
+	 * Prints a table with one line per collected coin.
+	 * 
+	 * @param out
+	 *            where to print the table
+	 */
+	public void print(PrintWriter out) {
+		out.println("Coin Time Distance OptimalToContact Ratio DirChanges "
+				+ "IdleTime");
+		for (int i = 0; i < collected; i++) {
+			out.println(row(i));
+		}
+	}
+
+	/**
+	 * Builds the output line for one coin.
+	 */
+	private String row(int coin) {
+		return (coin + 1) + " " + (collectTime[coin] / 1000000000.) + " "
+				+ distance[coin] + " " + optimal[coin] + " " + getRatio(coin)
+				+ " " + directionChanges[coin] + " "
+				+ (idleTime[coin] / 1000000000.);
+	}
+}
@@ -0,0 +1,128 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the coin and the cube of a session using pre-drawn sprites. Logical
+ * coordinates are mapped to device pixels by a scale and an origin, which
+ * start at one pixel per logical pixel with no offset. Drawing does not create
+ * any objects once the sprites for the scale exist.
+ */
+public class SceneRenderer {
+	private final Cube cube;
+	// Pre-drawn images of the coin
+	private final SpriteCache coinSprite;
+	private volatile CoinGame game;
+	// Mapping from logical to device coordinates
+	private double scale = 1;
+	private double originX = 0;
+	private double originY = 0;
+
+	/**
+	 * Constructor for the SceneRenderer.
+	 * 
+	 * @param cube
+	 *            the cube to draw
+	 */
+	public SceneRenderer(Cube cube) {
+		this.cube = cube;
+		coinSprite = new SpriteCache(CoinGame.COIN_SIZE, CoinGame.COIN_SIZE) {
+			@Override
+			protected void render(Graphics2D g) {
+				g.setColor(Color.yellow);
+				g.fillRect(0, 0, CoinGame.COIN_SIZE, CoinGame.COIN_SIZE);
+			}
+		};
+	}
+
+	/**
+	 * Sets the session whose coin is drawn. Without a session only the cube
+	 * is drawn.
+	 * 
+	 * @param game
+	 *            the session, or null
+	 */
+	public void setGame(CoinGame game) {
+		this.game = game;
+	}
+
+	/**
+	 * Sets the mapping from logical to device coordinates.
+	 * 
+	 * @param scale
+	 *            number of device pixels per logical pixel
+	 * @param originX
+	 *            device x coordinate of logical 0,0
+	 * @param originY
+	 *            device y coordinate of logical 0,0
+	 */
+	public void setMapping(double scale, double originX, double originY) {
+		this.scale = scale;
+		this.originX = originX;
+		this.originY = originY;
+	}
+
+	/**
+	 * Draws the play area fitted to the center of a view, such as the panel
+	 * of the window. The sprites are drawn at device resolution, undoing the
+	 * scaling done by the system for the time they are drawn.
+	 * 
+	 * @param g
+	 *            Graphics component of the view, scaled by the system
+	 * @param width
+	 *            width of the view
+	 * @param height
+	 *            height of the view
+	 * @param systemScale
+	 *            device pixels per pixel of the view
+	 */
+	public void drawView(Graphics2D g, int width, int height,
+			double systemScale) {
+		// fit the logical play area in the center of the view
+		double viewScale = Math.min(width / (double) CoinGame.PANEL_X, height
+				/ (double) CoinGame.PANEL_Y);
+		double offsetX = (width - CoinGame.PANEL_X * viewScale) / 2;
+		double offsetY = (height - CoinGame.PANEL_Y * viewScale) / 2;
+		// sprites are already at device resolution, draw them unscaled
+		g.scale(1 / systemScale, 1 / systemScale);
+		setMapping(systemScale * viewScale, systemScale * offsetX,
+				systemScale * offsetY);
+		draw(g);
+		g.scale(systemScale, systemScale);
+	}
+
+	/**
+	 * Draws the coin, if there is a session, and the cube.
+	 * 
+	 * @param g
+	 *            Graphics component, not scaled
+	 */
+	public void draw(Graphics2D g) {
+		CoinGame current = game;
+		// draws coin if testing
+		if (current != null) {
+			drawSprite(g, coinSprite.get(scale), current.getCoinX(),
+					current.getCoinY());
+		}
+		// draw cube
+		drawSprite(g, cube.getSprite(scale), cube.getX(), cube.getY());
+	}
+
+	/**
+	 * Draws a pre-drawn image with its top left corner at a logical
+	 * location.
+	 * 
+	 * @param g
+	 *            Graphics component
+	 * @param sprite
+	 *            image drawn at the current scale
+	 * @param x
+	 *            logical coordinate for x-axis
+	 * @param y
+	 *            logical coordinate for y-axis
+	 */
+	private void drawSprite(Graphics2D g, BufferedImage sprite, int x, int y) {
+		g.drawImage(sprite, (int) Math.round(originX + x * scale),
+				(int) Math.round(originY + y * scale), null);
+	}
+}
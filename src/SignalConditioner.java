@@ -0,0 +1,176 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Sits between the raw direction levels given by the input and the direction
+ * array of the cube. The raw levels are sampled once per base tick
+ * (CoinGame.BASE_TICK, 5 ms of session time) and passed through a list of
+ * LevelFilter stages before being written to the cube, so settings counted in
+ * cycles mean the same time on every machine. With no stages the raw levels
+ * are passed through unchanged.
+ * <p>
+ * Input may arrive on any thread. The stages themselves are only used by the
+ * thread that runs the cycles.
+ */
+public class SignalConditioner {
+	// UP,RIGHT,DOWN,LEFT
+	private final AtomicIntegerArray raw = new AtomicIntegerArray(4);
+	private final LevelFilter[] stages;
+	// set by clearAll(), the stages are cleared on the next cycle
+	private final AtomicBoolean clearPending = new AtomicBoolean();
+
+	/**
+	 * Constructor for the SignalConditioner.
+	 * 
+	 * @param stages
+	 *            the filters applied to the levels, in order
+	 */
+	public SignalConditioner(LevelFilter[] stages) {
+		this.stages = stages;
+	}
+
+	/**
+	 * Creates a SignalConditioner from a configuration file. Each line of the
+	 * file names a stage followed by its setting, for example "average 4" or
+	 * "smooth 0.3". If the file does not exist no filtering is applied, and if
+	 * it cannot be read the error is reported and no filtering is applied.
+	 * 
+	 * @param fileLocation
+	 *            the location of the configuration file
+	 * @return the SignalConditioner
+	 */
+	public static SignalConditioner load(String fileLocation) {
+		File file = new File(fileLocation);
+		List<LevelFilter> stages = new ArrayList<LevelFilter>();
+		if (file.exists()) {
+			try {
+				// read name-setting pairs until the end of the file
+				Scanner scan = new Scanner(file);
+				while (scan.hasNext()) {
+					String name = scan.next();
+					stages.add(LevelFilter.create(name, scan.nextDouble()));
+				}
+				scan.close();
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Could not read filters from "
+						+ fileLocation + ", input will not be filtered");
+				stages.clear();
+			}
+		}
+		return new SignalConditioner(stages.toArray(new LevelFilter[stages
+				.size()]));
+	}
+
+	/**
+	 * Sets the raw level of one direction. Called by the input whenever a new
+	 * level arrives.
+	 * 
+	 * @param axis
+	 *            the direction (UP,RIGHT,DOWN,LEFT)
+	 * @param level
+	 *            the new level, 0-9
+	 */
+	public void set(int axis, int level) {
+		raw.set(axis, level);
+	}
+
+	/**
+	 * Sets the raw level of one direction to zero and clears the history of
+	 * every stage for it, so the direction stops immediately. Must be called
+	 * by the thread that runs the cycles.
+	 * 
+	 * @param axis
+	 *            the direction (UP,RIGHT,DOWN,LEFT)
+	 */
+	public void clear(int axis) {
+		raw.set(axis, 0);
+		for (int i = 0; i < stages.length; i++) {
+			stages[i].reset(axis);
+		}
+	}
+
+	/**
+	 * Sets every raw level to zero. The history of the stages is cleared at
+	 * the start of the next cycle, so this may be called by the input. Levels
+	 * set after this call are kept.
+	 */
+	public void clearAll() {
+		for (int axis = 0; axis < raw.length(); axis++) {
+			raw.set(axis, 0);
+		}
+		clearPending.set(true);
+	}
+
+	/**
+	 * Samples the raw levels, filters them and writes the result into the
+	 * direction array. Should be called once per base tick.
+	 * 
+	 * @param direction
+	 *            the direction array of the cube
+	 */
+	public void process(int[] direction) {
+		// the raw levels were zeroed by clearAll() itself, and may hold
+		// levels given since then
+		if (clearPending.getAndSet(false)) {
+			for (int axis = 0; axis < raw.length(); axis++) {
+				for (int i = 0; i < stages.length; i++) {
+					stages[i].reset(axis);
+				}
+			}
+		}
+		for (int axis = 0; axis < raw.length(); axis++) {
+			double value = raw.get(axis);
+			for (int i = 0; i < stages.length; i++) {
+				value = stages[i].apply(axis, value);
+			}
+			// round back to a whole level in the range 0-9
+			int level = (int) Math.round(value);
+			direction[axis] = Math.max(0, Math.min(9, level));
+		}
+	}
+
+	/**
+	 * Returns the number of stages.
+	 * 
+	 * @return number of stages
+	 */
+	public int getStageCount() {
+		return stages.length;
+	}
+
+	/**
+	 * Returns the total delay added by all stages, measured in cycles.
+	 * 
+	 * @return total latency in cycles
+	 */
+	public double getLatency() {
+		double sum = 0;
+		for (int i = 0; i < stages.length; i++) {
+			sum += stages[i].getLatency();
+		}
+		return sum;
+	}
+
+	/**
+	 * Prints a table with the latency added by each stage.
+	 * 
+	 * @param out
+	 *            where to print the table
+	 * @param cycleMillis
+	 *            the length of a cycle in milliseconds
+	 */
+	public void print(PrintWriter out, double cycleMillis) {
+		out.println("Filter Latency(ms)");
+		for (int i = 0; i < stages.length; i++) {
+			out.println(stages[i].getName() + " "
+					+ (stages[i].getLatency() * cycleMillis));
+		}
+		out.println("total " + (getLatency() * cycleMillis));
+	}
+}
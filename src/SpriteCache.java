@@ -0,0 +1,126 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Holds pre-drawn images of a shape for the last few scales it has been
+ * displayed at. The shape is drawn once per scale in its logical coordinates,
+ * so drawing it on screen afterwards is a plain image copy no matter how large
+ * the window is.
+ * <p>
+ * Resizing the window asks for a new scale at every step, so the cache is
+ * bounded both in the number of images and in their total pixels. The image
+ * used longest ago is dropped first, so a scale drawn every frame (such as
+ * the one used for recording) is kept while the window is resized.
+ */
+public abstract class SpriteCache {
+	private static final int SLOTS = 8;
+	// about 32 MB of ARGB pixels
+	private static final long MAX_PIXELS = 8 * 1024 * 1024;
+	private final int width;
+	private final int height;
+	// scales drawn so far, their images and when each was last used. Kept in
+	// arrays so looking up a scale does not create any objects.
+	private final double[] scales = new double[SLOTS];
+	private final BufferedImage[] sprites = new BufferedImage[SLOTS];
+	private final long[] used = new long[SLOTS];
+	private long uses = 0;
+	private long pixels = 0;
+
+	/**
+	 * Constructor for the SpriteCache.
+	 * 
+	 * @param width
+	 *            logical width of the shape
+	 * @param height
+	 *            logical height of the shape
+	 */
+	public SpriteCache(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Draws the shape with its top left corner at 0,0 in logical coordinates.
+	 * 
+	 * @param g
+	 *            Graphics component, already scaled
+	 */
+	protected abstract void render(Graphics2D g);
+
+	/**
+	 * Returns the image of the shape drawn at the given scale, drawing it the
+	 * first time the scale is asked for.
+	 * 
+	 * @param scale
+	 *            number of device pixels per logical pixel
+	 * @return the image of the shape
+	 */
+	public BufferedImage get(double scale) {
+		uses++;
+		for (int i = 0; i < SLOTS; i++) {
+			if (sprites[i] != null && scales[i] == scale) {
+				used[i] = uses;
+				return sprites[i];
+			}
+		}
+		// not drawn at this scale yet, make room for it
+		BufferedImage sprite = draw(scale);
+		long size = (long) sprite.getWidth() * sprite.getHeight();
+		while (pixels > 0 && pixels + size > MAX_PIXELS) {
+			drop(oldest(false));
+		}
+		int slot = oldest(true);
+		drop(slot);
+		scales[slot] = scale;
+		sprites[slot] = sprite;
+		used[slot] = uses;
+		pixels += size;
+		return sprite;
+	}
+
+	/**
+	 * Returns the filled slot used longest ago, or an empty slot if there is
+	 * one and empty slots are wanted.
+	 */
+	private int oldest(boolean empty) {
+		int oldest = -1;
+		for (int i = 0; i < SLOTS; i++) {
+			if (sprites[i] == null) {
+				if (empty) {
+					return i;
+				}
+			} else if (oldest < 0 || used[i] < used[oldest]) {
+				oldest = i;
+			}
+		}
+		return oldest;
+	}
+
+	/**
+	 * Empties a slot.
+	 */
+	private void drop(int slot) {
+		if (sprites[slot] != null) {
+			pixels -= (long) sprites[slot].getWidth()
+					* sprites[slot].getHeight();
+			sprites[slot] = null;
+		}
+	}
+
+	/**
+	 * Draws the shape into a new image at the given scale.
+	 */
+	private BufferedImage draw(double scale) {
+		BufferedImage sprite = new BufferedImage(
+				(int) Math.ceil(width * scale), (int) Math.ceil(height * scale),
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = sprite.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+				RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.scale(scale, scale);
+		render(g);
+		g.dispose();
+		return sprite;
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Checks that coins are collected at the same time whatever the cycle length,
+ * including coins next to the edge of the window, which the cube only reaches
+ * after it has stopped against the edge on one axis. Each case holds the
+ * input levels steady and is run with cycles from 5 ms up to 2 s; the
+ * collection times must match those of the 5 ms run. Exits with status 1 if
+ * any differ.
+ */
+public class StepCheck {
+	private static final long[] STEPS = { 5000000L, 50000000L, 500000000L,
+			2000000000L };
+	// rounding allowed between runs, in nanoseconds
+	private static final long TOLERANCE = 1000;
+
+	/**
+	 * @param args
+	 *            not used
+	 */
+	public static void main(String[] args) {
+		boolean passed = true;
+		// right only, coins in the middle and against the right edge
+		passed &= check("right", new int[] { 0, 9, 0, 0 }, new int[][] {
+				{ 500, 300 }, { 600, 300 } });
+		// down and right, reaching the bottom edge first then sliding along
+		// it to the corner
+		passed &= check("down-right", new int[] { 0, 4, 9, 0 }, new int[][] {
+				{ 400, 615 }, { 615, 615 } });
+		// up and left, reaching the left edge first then sliding up it
+		passed &= check("up-left", new int[] { 5, 0, 0, 9 }, new int[][] {
+				{ 0, 200 }, { 0, 25 }, { 0, 0 } });
+		if (!passed) {
+			System.out.println("FAILED: collection times depend on the cycle "
+					+ "length");
+			System.exit(1);
+		}
+		System.out.println("PASSED");
+	}
+
+	/**
+	 * Runs one case at every cycle length and compares the collection times.
+	 * 
+	 * @param name
+	 *            name of the case
+	 * @param levels
+	 *            input levels held for the whole session (UP,RIGHT,DOWN,LEFT)
+	 * @param coins
+	 *            x-y pairs of the coins
+	 * @return True if every run collected every coin at the same times
+	 */
+	private static boolean check(String name, int[] levels, int[][] coins) {
+		long[] expected = run(levels, coins, STEPS[0]);
+		boolean passed = expected != null;
+		System.out.println(name + " " + (STEPS[0] / 1000000) + " ms: "
+				+ describe(expected));
+		for (int i = 1; i < STEPS.length; i++) {
+			long[] times = run(levels, coins, STEPS[i]);
+			boolean same = times != null && expected != null;
+			for (int coin = 0; same && coin < coins.length; coin++) {
+				same = Math.abs(times[coin] - expected[coin]) <= TOLERANCE;
+			}
+			System.out.println(name + " " + (STEPS[i] / 1000000) + " ms: "
+					+ describe(times) + (same ? "" : " MISMATCH"));
+			passed &= same;
+		}
+		return passed;
+	}
+
+	/**
+	 * Plays a session with steady input.
+	 * 
+	 * @return the time from the start at which each coin was collected, or
+	 *         null if not every coin was collected
+	 */
+	private static long[] run(int[] levels, int[][] coins, long step) {
+		SignalConditioner input = new SignalConditioner(new LevelFilter[0]);
+		for (int axis = 0; axis < 4; axis++) {
+			input.set(axis, levels[axis]);
+		}
+		CoinGame game = new CoinGame(new Cube(), coins, input, 60);
+		long time = 0;
+		game.start(time);
+		do {
+			time += step;
+		} while (!game.tick(time));
+		if (game.getCoins() < coins.length) {
+			return null;
+		}
+		long[] times = new long[coins.length];
+		long total = 0;
+		for (int coin = 0; coin < coins.length; coin++) {
+			total += game.getTracker().getCollectTime(coin);
+			times[coin] = total;
+		}
+		return times;
+	}
+
+	/**
+	 * Lists the collection times in seconds.
+	 */
+	private static String describe(long[] times) {
+		if (times == null) {
+			return "not every coin collected";
+		}
+		StringBuilder text = new StringBuilder();
+		for (long time : times) {
+			text.append(time / 1000000000.).append(' ');
+		}
+		return text.toString().trim();
+	}
+}
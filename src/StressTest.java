@@ -0,0 +1,358 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many testing sessions at once without a window, driven by synthetic
+ * input instead of a subject, and reports how much work one machine can
+ * handle. Arguments are given as name=value pairs:
+ * <ul>
+ * <li>sessions - number of sessions to run (default 64)</li>
+ * <li>threads - number of sessions run at the same time (default: one per
+ * processor)</li>
+ * <li>ticks - cycles run by each session (default 100000)</li>
+ * <li>rate - input events per second of session time (default 50)</li>
+ * <li>source - random, bot, trace or mix (default mix)</li>
+ * <li>trace - file of recorded events, one "direction level" pair per line,
+ * used by the trace source (UP=0,RIGHT=1,DOWN=2,LEFT=3)</li>
+ * <li>layout - coin location file (default coins.loc)</li>
+ * <li>duration - max duration of a session in seconds (default 60)</li>
+ * <li>step - simulated milliseconds per cycle (default 5)</li>
+ * </ul>
+ * Sessions run in simulated time, one cycle per step, as fast as the machine
+ * allows. A session that ends is replaced by a new one until it has run all
+ * of its cycles.
+ */
+public class StressTest {
+
+	private int sessions = 64;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private long ticks = 100000;
+	private double rate = 50;
+	private String source = "mix";
+	private int[][] trace;
+	private int[][] coinLocations;
+	private int duration = 60;
+	private double step = 5;// milliseconds
+
+	/**
+	 * @param args
+	 *            name=value settings, see the class description
+	 */
+	public static void main(String[] args) {
+		StressTest test = new StressTest();
+		try {
+			test.configure(args);
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Invalid settings: " + e.getMessage());
+			System.exit(1);
+		}
+		test.run();
+	}
+
+	/**
+	 * Reads the name=value settings.
+	 * 
+	 * @param args
+	 *            the settings
+	 * @throws IOException
+	 *             if the layout or trace file cannot be read
+	 */
+	private void configure(String[] args) throws IOException {
+		Arguments settings = new Arguments(args);
+		sessions = settings.getInt("sessions", sessions);
+		threads = settings.getInt("threads", threads);
+		ticks = settings.getLong("ticks", ticks);
+		rate = settings.getDouble("rate", rate);
+		source = settings.getString("source", source);
+		String traceFile = settings.getString("trace", null);
+		String layout = settings.getString("layout", "coins.loc");
+		duration = settings.getInt("duration", duration);
+		step = settings.getDouble("step", step);
+		settings.check();
+		coinLocations = new CoinLayout(layout, CoinGame.PANEL_X,
+				CoinGame.PANEL_Y, CoinGame.COIN_SIZE).get();
+		if (traceFile != null) {
+			trace = loadTrace(traceFile);
+		} else if (source.equals("trace")) {
+			throw new IllegalArgumentException("source=trace needs trace=file");
+		}
+	}
+
+	/**
+	 * Reads recorded events, one direction-level pair per line.
+	 * 
+	 * @param fileLocation
+	 *            the location of the trace
+	 * @return direction-level pairs
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private static int[][] loadTrace(String fileLocation) throws IOException {
+		List<int[]> events = new ArrayList<int[]>();
+		Scanner scan = new Scanner(new File(fileLocation));
+		try {
+			while (scan.hasNextInt()) {
+				int axis = scan.nextInt();
+				int level = scan.nextInt();
+				if (axis < 0 || axis > 3 || level < 0 || level > 9) {
+					throw new IllegalArgumentException("bad trace event "
+							+ axis + " " + level);
+				}
+				events.add(new int[] { axis, level });
+			}
+		} finally {
+			scan.close();
+		}
+		if (events.isEmpty()) {
+			throw new IllegalArgumentException("trace has no events");
+		}
+		return events.toArray(new int[events.size()][]);
+	}
+
+	/**
+	 * Runs every session and prints the results.
+	 */
+	private void run() {
+		System.out.println("Sessions " + sessions + ", threads " + threads
+				+ ", ticks " + ticks + ", step " + step + " ms, rate " + rate
+				+ "/s, source " + source);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		long wallStart = System.nanoTime();
+		for (int i = 0; i < sessions; i++) {
+			final int session = i;
+			futures.add(pool.submit(new Callable<Result>() {
+				@Override
+				public Result call() {
+					return runSession(session);
+				}
+			}));
+		}
+		// combine the results of every session
+		Result total = new Result();
+		try {
+			for (Future<Result> future : futures) {
+				total.add(future.get());
+			}
+		} catch (Exception e) {
+			System.err.println("Session failed: " + e);
+			System.exit(1);
+		} finally {
+			pool.shutdown();
+		}
+		double wall = (System.nanoTime() - wallStart) / 1000000000.;
+
+		System.out.println("Wall time (s): " + wall);
+		System.out.println("Ticks/s: " + (total.ticks / wall));
+		System.out.println("Events/s: " + (total.events / wall));
+		System.out.println("Games completed: " + total.games);
+		if (total.allocated >= 0) {
+			System.out.println("Allocation (MB/s): "
+					+ (total.allocated / wall / (1024 * 1024)));
+			System.out.println("Allocation (bytes/tick): "
+					+ ((double) total.allocated / total.ticks));
+		} else {
+			System.out.println("Allocation: not supported by this JVM");
+		}
+		LatencyHistogram latency = total.latency;
+		System.out.println("Tick latency (us) p50 "
+				+ (latency.getPercentile(.5) / 1000.) + " p99 "
+				+ (latency.getPercentile(.99) / 1000.) + " p99.9 "
+				+ (latency.getPercentile(.999) / 1000.) + " p99.99 "
+				+ (latency.getPercentile(.9999) / 1000.) + " max "
+				+ (latency.getMax() / 1000.));
+	}
+
+	/**
+	 * Runs one session for its full number of cycles.
+	 * 
+	 * @param session
+	 *            number of the session, used to pick the source and seed
+	 * @return the measurements of the session
+	 */
+	private Result runSession(int session) {
+		Random random = new Random(session);
+		DirectionSource input = createSource(session);
+		Result result = new Result();
+		double eventsPerTick = rate * step / 1000.;
+		long stepNanos = (long) (step * 1000000);
+		double pending = 0;
+		long time = 0;
+		CoinGame game = createGame();
+		game.start(time);
+
+		long allocatedStart = getAllocatedBytes();
+		for (long t = 0; t < ticks; t++) {
+			long before = System.nanoTime();
+			// give the session the events that arrived during the cycle
+			pending += eventsPerTick;
+			while (pending >= 1) {
+				input.next(game, random);
+				pending--;
+				result.events++;
+			}
+			boolean ended = game.tick(time);
+			result.latency.record(System.nanoTime() - before);
+			time += stepNanos;
+			if (ended) {
+				// start over with a new session
+				result.games++;
+				game = createGame();
+				game.start(time);
+			}
+		}
+		long allocatedEnd = getAllocatedBytes();
+		result.ticks = ticks;
+		result.allocated = allocatedStart < 0 ? -1 : allocatedEnd
+				- allocatedStart;
+		return result;
+	}
+
+	/**
+	 * Creates a new session with its own cube and filters.
+	 * 
+	 * @return the session
+	 */
+	private CoinGame createGame() {
+		return new CoinGame(new Cube(), coinLocations, new SignalConditioner(
+				new LevelFilter[0]), duration);
+	}
+
+	/**
+	 * Creates the input of one session. With the mix source, sessions take
+	 * turns using each of the available sources.
+	 * 
+	 * @param session
+	 *            number of the session
+	 * @return the input source
+	 */
+	private DirectionSource createSource(int session) {
+		String name = source;
+		if (name.equals("mix")) {
+			String[] names = trace == null ? new String[] { "random", "bot" }
+					: new String[] { "random", "bot", "trace" };
+			name = names[session % names.length];
+		}
+		switch (name) {
+		case "random":
+			return new RandomWalk();
+		case "bot":
+			return new Bot();
+		case "trace":
+			// start each session at a different point in the trace
+			return new Trace(trace, session * 7919 % trace.length);
+		default:
+			throw new IllegalArgumentException("unknown source " + name);
+		}
+	}
+
+	/**
+	 * Returns the bytes allocated by the current thread so far, or -1 if the
+	 * JVM does not measure it.
+	 * 
+	 * @return allocated bytes
+	 */
+	static long getAllocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory
+				.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported()
+					&& sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread()
+						.getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Measurements of one or more sessions.
+	 */
+	private static class Result {
+		private long ticks = 0;
+		private long events = 0;
+		private long games = 0;
+		private long allocated = 0;
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		/**
+		 * Adds the measurements of another result to this one.
+		 */
+		private void add(Result other) {
+			ticks += other.ticks;
+			events += other.events;
+			games += other.games;
+			allocated = allocated < 0 || other.allocated < 0 ? -1 : allocated
+					+ other.allocated;
+			latency.add(other.latency);
+		}
+	}
+
+	/**
+	 * Moves a random direction one level up or down with each event.
+	 */
+	private static class RandomWalk implements DirectionSource {
+		private final int[] levels = { 0, 0, 0, 0 };
+
+		@Override
+		public void next(CoinGame game, Random random) {
+			int axis = random.nextInt(4);
+			int level = levels[axis] + (random.nextBoolean() ? 1 : -1);
+			levels[axis] = Math.max(0, Math.min(9, level));
+			game.getConditioner().set(axis, levels[axis]);
+		}
+	}
+
+	/**
+	 * Steers toward the current coin, setting the direction that is furthest
+	 * off with each event.
+	 */
+	private static class Bot implements DirectionSource {
+		private static final int LEVEL = 7;
+
+		@Override
+		public void next(CoinGame game, Random random) {
+			Cube cube = game.getCube();
+			int center = cube.getTotalLength() / 2;
+			int dx = game.getCoinX() - (cube.getX() + center);
+			int dy = game.getCoinY() - (cube.getY() + center);
+			SignalConditioner input = game.getConditioner();
+			if (Math.abs(dx) >= Math.abs(dy)) {
+				input.set(1, dx > 0 ? LEVEL : 0);
+				input.set(3, dx < 0 ? LEVEL : 0);
+			} else {
+				input.set(2, dy > 0 ? LEVEL : 0);
+				input.set(0, dy < 0 ? LEVEL : 0);
+			}
+		}
+	}
+
+	/**
+	 * Replays recorded events in order, starting over at the end.
+	 */
+	private static class Trace implements DirectionSource {
+		private final int[][] events;
+		private int index;
+
+		private Trace(int[][] events, int start) {
+			this.events = events;
+			this.index = start;
+		}
+
+		@Override
+		public void next(CoinGame game, Random random) {
+			game.getConditioner().set(events[index][0], events[index][1]);
+			index = (index + 1) % events.length;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+import java.util.Random;
+
+/**
+ * A session steered by a bot instead of a subject, used to measure the cost of
+ * the cycles of a real session. The coins are placed at random over the whole
+ * play area, so the bot keeps moving, reaching the window edges and
+ * collecting coins, for as many cycles as the measurement needs. Steering
+ * does not create any objects.
+ */
+public class SyntheticSession {
+	// cycles between changes of the bot's level
+	private static final int INTERVAL = 50;
+
+	private final CoinGame game;
+	// the levels last given to the session
+	private final int[] levels = { 0, 0, 0, 0 };
+	// where the levels are written, if not straight to the filters
+	private InputRing ring;
+
+	/**
+	 * Constructor for the SyntheticSession. The same seed always gives the
+	 * same layout.
+	 * 
+	 * @param conditioner
+	 *            the filters the bot's levels pass through
+	 * @param numCoins
+	 *            the number of coins in the layout
+	 * @param seed
+	 *            seed of the layout
+	 */
+	public SyntheticSession(SignalConditioner conditioner, int numCoins,
+			long seed) {
+		Random random = new Random(seed);
+		int[][] coins = new int[numCoins][2];
+		for (int[] coin : coins) {
+			coin[0] = random.nextInt(CoinGame.PANEL_X - CoinGame.COIN_SIZE
+					+ 1);
+			coin[1] = random.nextInt(CoinGame.PANEL_Y - CoinGame.COIN_SIZE
+					+ 1);
+		}
+		game = new CoinGame(new Cube(), coins, conditioner, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the session.
+	 * 
+	 * @return the session
+	 */
+	public CoinGame getGame() {
+		return game;
+	}
+
+	/**
+	 * Sends the bot's levels through a ring instead of giving them straight
+	 * to the filters, the way the classifier process does. The session then
+	 * has to poll the ring to receive them.
+	 * 
+	 * @param ring
+	 *            a ring opened for writing
+	 */
+	public void sendTo(InputRing ring) {
+		this.ring = ring;
+	}
+
+	/**
+	 * Steers toward the current coin on the axis that is furthest off,
+	 * changing speed every few cycles. Now and then everything is stopped and
+	 * the cube reset, as the space and ESC keys do. Called once per cycle,
+	 * before the cycle is run.
+	 * 
+	 * @param cycle
+	 *            number of the cycle
+	 */
+	public void steer(int cycle) {
+		if (cycle % 10000 == 9999) {
+			game.getConditioner().clearAll();
+			game.requestReset();
+			for (int axis = 0; axis < 4; axis++) {
+				levels[axis] = 0;
+			}
+			return;
+		}
+		if (cycle % INTERVAL != 0) {
+			return;
+		}
+		int level = 5 + cycle / INTERVAL % 5;
+		Cube cube = game.getCube();
+		double center = cube.getTotalLength() / 2.;
+		double dx = game.getCoinX() + CoinGame.COIN_SIZE / 2.
+				- (cube.getPreciseX() + center);
+		double dy = game.getCoinY() + CoinGame.COIN_SIZE / 2.
+				- (cube.getPreciseY() + center);
+		if (Math.abs(dx) >= Math.abs(dy)) {
+			set(1, dx > 0 ? level : 0);
+			set(3, dx < 0 ? level : 0);
+		} else {
+			set(2, dy > 0 ? level : 0);
+			set(0, dy < 0 ? level : 0);
+		}
+	}
+
+	/**
+	 * Gives a level to the session if it changed.
+	 */
+	private void set(int axis, int level) {
+		if (levels[axis] != level) {
+			levels[axis] = level;
+			if (ring != null) {
+				ring.publish(axis, level);
+			} else {
+				game.getConditioner().set(axis, level);
+			}
+		}
+	}
+}
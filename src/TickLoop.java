@@ -0,0 +1,54 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces the cycles of a session on the thread that runs them. Each call to
+ * await() parks the thread until the start of the next cycle. Cycles that were
+ * missed because the thread fell behind are skipped rather than run all at
+ * once. Waiting does not create any objects.
+ */
+public class TickLoop {
+	private final long period;
+	private long next;
+	private long late = 0;
+
+	/**
+	 * Constructor for the TickLoop. The first cycle starts one period from
+	 * now.
+	 * 
+	 * @param period
+	 *            cycle length in nanoseconds, 0 to run cycles back to back
+	 */
+	public TickLoop(long period) {
+		this.period = period;
+		next = System.nanoTime();
+	}
+
+	/**
+	 * Waits for the start of the next cycle.
+	 * 
+	 * @return the time the cycle started (System.nanoTime())
+	 */
+	public long await() {
+		next += period;
+		long wait;
+		while ((wait = next - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(wait);
+		}
+		long now = System.nanoTime();
+		late = now - next;
+		// skip missed cycles rather than running them all at once
+		if (late > period) {
+			next = now;
+		}
+		return now;
+	}
+
+	/**
+	 * Returns how late the last cycle started.
+	 * 
+	 * @return time in nanoseconds after the planned start
+	 */
+	public long getLate() {
+		return late;
+	}
+}